@@ -0,0 +1,465 @@
+package com.monitorjbl.json.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Generates a {@code ModelMetadata} implementation for every class annotated with
+ * {@code @JsonViewModel}. Properties are discovered with the same rules the serializer
+ * applies at runtime: record components, or getters starting with {@code get} or
+ * {@code is} and fields, filtered by the class's {@code @JsonAutoDetect} visibility. Members that cannot be accessed from the
+ * model's package are left to be read through reflection. Each property's type, modifiers and the annotations that affect
+ * serialization are generated too, so the serializer never has to reflect over the members.
+ */
+@SupportedAnnotationTypes(JsonViewMetadataProcessor.MODEL_ANNOTATION)
+public class JsonViewMetadataProcessor extends AbstractProcessor {
+  static final String MODEL_ANNOTATION = "com.monitorjbl.json.JsonViewModel";
+  static final String METADATA_SUFFIX = "$JsonViewMetadata";
+  private static final String AUTO_DETECT_ANNOTATION = "com.fasterxml.jackson.annotation.JsonAutoDetect";
+  private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+  private static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+  private static final String JSON_INCLUDE = "com.fasterxml.jackson.annotation.JsonInclude";
+  private static final String JSON_IGNORE_PROPERTIES = "com.fasterxml.jackson.annotation.JsonIgnoreProperties";
+  private static final String JSON_BACK_REFERENCE = "com.fasterxml.jackson.annotation.JsonBackReference";
+  private static final String JSON_MANAGED_REFERENCE = "com.fasterxml.jackson.annotation.JsonManagedReference";
+  private static final String JSON_SERIALIZE = "tools.jackson.databind.annotation.JsonSerialize";
+  private static final String NO_SERIALIZER = "tools.jackson.databind.ValueSerializer.None";
+  private static final String CACHEABLE_FRAGMENT = "com.monitorjbl.json.CacheableFragment";
+  private static final Map<Modifier, String> REFLECTED_MODIFIERS = new EnumMap<>(Modifier.class);
+
+  static {
+    for(Modifier modifier : asList(Modifier.PUBLIC, Modifier.PROTECTED, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL,
+        Modifier.TRANSIENT, Modifier.VOLATILE, Modifier.SYNCHRONIZED, Modifier.NATIVE, Modifier.ABSTRACT)) {
+      REFLECTED_MODIFIERS.put(modifier, "java.lang.reflect.Modifier." + modifier.name());
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for(TypeElement annotation : annotations) {
+      for(TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+        try {
+          generate(type);
+        } catch(IOException e) {
+          processingEnv.getMessager().printMessage(Kind.ERROR, "Could not write metadata: " + e.getMessage(), type);
+        }
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement type) throws IOException {
+    PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+    if(type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, "@JsonViewModel can only be used on classes", type);
+      return;
+    } else if(type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, "@JsonViewModel cannot be used on inner classes", type);
+      return;
+    } else if(!isAccessible(type, pkg)) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, "@JsonViewModel cannot be used on private classes", type);
+      return;
+    }
+
+    List<Property> properties = discoverProperties(type);
+    for(Property property : properties) {
+      for(Element source : property.sources) {
+        if(!isAccessible(declaringType(source), pkg)) {
+          processingEnv.getMessager().printMessage(Kind.WARNING, "No metadata generated, property '" + property.name +
+              "' is declared in " + declaringType(source) + " which is not accessible from " + pkg, type);
+          return;
+        }
+      }
+    }
+
+    String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+    String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + METADATA_SUFFIX;
+
+    String generatedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    if(processingEnv.getElementUtils().getTypeElement(generatedName) != null) {
+      //generated by an earlier build and passed back in as a source, as non-clean builds do
+      return;
+    }
+
+    try(Writer out = processingEnv.getFiler().createSourceFile(generatedName, type).openWriter()) {
+      out.write(render(type, pkg, packageName, simpleName, properties));
+    }
+  }
+
+  /**
+   * Mirrors the serializer's runtime discovery, including the order in which properties
+   * are found and which members contribute annotations to each property.
+   */
+  private List<Property> discoverProperties(TypeElement type) {
+    if(type.getKind() == ElementKind.RECORD) {
+      return recordProperties(type);
+    }
+
+    Map<String, Property> properties = new LinkedHashMap<>();
+    Predicate<Element> fieldVisible = visibility(type, "fieldVisibility", false);
+    Predicate<Element> getVisible = visibility(type, "getterVisibility", true);
+    Predicate<Element> isVisible = visibility(type, "isGetterVisibility", true);
+    Predicate<Element> getterVisible = m -> isBooleanGetter((ExecutableElement) m) ? isVisible.test(m) : getVisible.test(m);
+
+    for(TypeElement c = type; c != null; c = superclass(c)) {
+      for(VariableElement field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+        String name = field.getSimpleName().toString();
+        properties.put(name, new Property(name, field, null));
+      }
+    }
+
+    Deque<TypeElement> parents = new ArrayDeque<>();
+    parents.push(type);
+    while(!parents.isEmpty()) {
+      TypeElement c = parents.pop();
+      for(ExecutableElement method : ElementFilter.methodsIn(c.getEnclosedElements())) {
+        if(!isGetter(method) && !isBooleanGetter(method)) {
+          continue;
+        }
+
+        String name = propertyName(method);
+        Property existing = properties.get(name);
+        if(existing != null && isBooleanGetter(method) && existing.member.getKind() == ElementKind.METHOD && isGetter((ExecutableElement) existing.member)) {
+          //getters starting with "get" win over those starting with "is"
+          continue;
+        }
+
+        Property getter = new Property(name, method, existing);
+        if(getterVisible.test(method)) {
+          properties.put(name, getter);
+        }
+      }
+
+      TypeElement superclass = superclass(c);
+      if(superclass != null) {
+        parents.push(superclass);
+      }
+      for(TypeMirror iface : c.getInterfaces()) {
+        parents.push((TypeElement) ((DeclaredType) iface).asElement());
+      }
+    }
+
+    List<Property> visible = new ArrayList<>();
+    for(Property property : properties.values()) {
+      boolean isField = property.member.getKind() == ElementKind.FIELD;
+      if(isField ? fieldVisible.test(property.member) : getterVisible.test(property.member)) {
+        visible.add(property);
+      }
+    }
+    return visible;
+  }
+
+  /**
+   * Returns the components of a record, read through their accessors and annotated by
+   * both the accessor and the field
+   */
+  private List<Property> recordProperties(TypeElement type) {
+    Map<String, VariableElement> fields = new LinkedHashMap<>();
+    for(VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+      fields.put(field.getSimpleName().toString(), field);
+    }
+
+    List<Property> properties = new ArrayList<>();
+    for(RecordComponentElement component : type.getRecordComponents()) {
+      String name = component.getSimpleName().toString();
+      Property field = new Property(name, fields.get(name), null);
+      properties.add(new Property(name, component.getAccessor(), field));
+    }
+    return properties;
+  }
+
+  private String render(TypeElement type, PackageElement pkg, String packageName, String simpleName, List<Property> properties) {
+    StringBuilder src = new StringBuilder();
+    if(!packageName.isEmpty()) {
+      src.append("package ").append(packageName).append(";\n\n");
+    }
+    src.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+    src.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+    src.append("public final class ").append(simpleName).append(" implements com.monitorjbl.json.ModelMetadata {\n");
+    src.append("  private static final java.util.List<com.monitorjbl.json.PropertyMetadata> PROPERTIES = java.util.Collections.unmodifiableList(\n");
+    src.append("      java.util.Arrays.<com.monitorjbl.json.PropertyMetadata>asList(");
+    for(int i = 0; i < properties.size(); i++) {
+      Property property = properties.get(i);
+      src.append(i == 0 ? "\n" : ",\n");
+      src.append("          new com.monitorjbl.json.PropertyMetadata(\"").append(property.name).append("\", ")
+          .append(accessor(type, pkg, property.member));
+      String typeLiteral = typeLiteral(property.member, pkg);
+      if(typeLiteral != null) {
+        src.append(", ").append(typeLiteral)
+            .append(", ").append(modifiers(property.member))
+            .append(", ").append(annotations(property));
+      }
+      for(Element source : property.sources) {
+        src.append(", ").append(memberReference(source));
+      }
+      src.append(")");
+    }
+    src.append("));\n\n");
+    src.append("  @Override\n");
+    src.append("  public java.util.List<com.monitorjbl.json.PropertyMetadata> properties() {\n");
+    src.append("    return PROPERTIES;\n");
+    src.append("  }\n");
+    src.append("}\n");
+    return src.toString();
+  }
+
+  /**
+   * Returns a lambda reading the member directly, or {@code null} if it has to be read
+   * through reflection
+   */
+  private String accessor(TypeElement type, PackageElement pkg, Element member) {
+    TypeElement declaring = declaringType(member);
+    boolean isStatic = member.getModifiers().contains(Modifier.STATIC);
+    boolean isMethod = member.getKind() == ElementKind.METHOD;
+    if(!isAccessible(member, pkg) || (isMethod && ((ExecutableElement) member).getReturnType().getKind() == TypeKind.VOID)) {
+      return "null";
+    }
+
+    String target = isStatic ? declaring.getQualifiedName().toString() : "((" + declaring.getQualifiedName() + ") o)";
+    return "o -> " + target + "." + member.getSimpleName() + (isMethod ? "()" : "");
+  }
+
+  /**
+   * Returns the class literal of the member's erased type, or {@code null} if the type
+   * cannot be referenced from the model's package
+   */
+  private String typeLiteral(Element member, PackageElement pkg) {
+    TypeMirror type = member.getKind() == ElementKind.METHOD ? ((ExecutableElement) member).getReturnType() : member.asType();
+    type = processingEnv.getTypeUtils().erasure(type);
+
+    TypeMirror component = type;
+    while(component.getKind() == TypeKind.ARRAY) {
+      component = ((ArrayType) component).getComponentType();
+    }
+    if(component.getKind() == TypeKind.DECLARED && !isAccessible(((DeclaredType) component).asElement(), pkg)) {
+      return null;
+    }
+    return type + ".class";
+  }
+
+  private String modifiers(Element member) {
+    List<String> modifiers = new ArrayList<>();
+    for(Modifier modifier : member.getModifiers()) {
+      if(REFLECTED_MODIFIERS.containsKey(modifier)) {
+        modifiers.add(REFLECTED_MODIFIERS.get(modifier));
+      }
+    }
+    return modifiers.isEmpty() ? "0" : String.join(" | ", modifiers);
+  }
+
+  /**
+   * Returns the annotations that affect serialization, read from every member of the
+   * property. Annotations on the member the property is read from win over the others.
+   */
+  private String annotations(Property property) {
+    Map<String, AnnotationMirror> found = new LinkedHashMap<>();
+    for(Element source : property.sources) {
+      for(AnnotationMirror annotation : source.getAnnotationMirrors()) {
+        found.putIfAbsent(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString(), annotation);
+      }
+    }
+
+    StringBuilder src = new StringBuilder("new com.monitorjbl.json.PropertyMetadata.Annotations()");
+    if(found.containsKey(JSON_PROPERTY)) {
+      String name = (String) value(found.get(JSON_PROPERTY), "value");
+      if(!name.isEmpty()) {
+        src.append(".name(").append(processingEnv.getElementUtils().getConstantExpression(name)).append(")");
+      }
+    }
+    if(found.containsKey(JSON_IGNORE)) {
+      src.append(".ignored(").append(value(found.get(JSON_IGNORE), "value")).append(")");
+    }
+    if(found.containsKey(JSON_INCLUDE)) {
+      VariableElement include = (VariableElement) value(found.get(JSON_INCLUDE), "value");
+      src.append(".include(com.fasterxml.jackson.annotation.JsonInclude.Include.").append(include.getSimpleName()).append(")");
+    }
+    if(found.containsKey(JSON_SERIALIZE)) {
+      TypeMirror using = processingEnv.getTypeUtils().erasure((TypeMirror) value(found.get(JSON_SERIALIZE), "using"));
+      if(!using.toString().equals(NO_SERIALIZER)) {
+        src.append(".serializer(").append(using).append(".class)");
+      }
+    }
+    if(found.containsKey(JSON_BACK_REFERENCE)) {
+      src.append(".backReference()");
+    }
+    if(found.containsKey(JSON_MANAGED_REFERENCE)) {
+      src.append(".managedReference()");
+    }
+    if(found.containsKey(JSON_IGNORE_PROPERTIES)) {
+      List<String> names = new ArrayList<>();
+      for(Object name : (List<?>) value(found.get(JSON_IGNORE_PROPERTIES), "value")) {
+        names.add(processingEnv.getElementUtils().getConstantExpression(((AnnotationValue) name).getValue()));
+      }
+      src.append(".ignoredProperties(").append(String.join(", ", names)).append(")");
+    }
+    if(found.containsKey(CACHEABLE_FRAGMENT)) {
+      String version = (String) value(found.get(CACHEABLE_FRAGMENT), "version");
+      src.append(".cacheable(").append(processingEnv.getElementUtils().getConstantExpression(version)).append(")");
+    }
+    return src.toString();
+  }
+
+  private Object value(AnnotationMirror annotation, String attribute) {
+    for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e :
+        processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+      if(e.getKey().getSimpleName().contentEquals(attribute)) {
+        return e.getValue().getValue();
+      }
+    }
+    return null;
+  }
+
+  private String memberReference(Element member) {
+    String factory = member.getKind() == ElementKind.METHOD ? "getter" : "field";
+    return "com.monitorjbl.json.PropertyMetadata.Member." + factory + "(" +
+        declaringType(member).getQualifiedName() + ".class, \"" + member.getSimpleName() + "\")";
+  }
+
+  /**
+   * Returns whether the element, and every type enclosing it, can be referenced from
+   * code in the given package
+   */
+  private boolean isAccessible(Element element, PackageElement pkg) {
+    for(Element e = element; e != null && e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+      Set<Modifier> modifiers = e.getModifiers();
+      if(modifiers.contains(Modifier.PRIVATE)) {
+        return false;
+      } else if(!modifiers.contains(Modifier.PUBLIC) && !processingEnv.getElementUtils().getPackageOf(e).equals(pkg)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Predicate<Element> visibility(TypeElement type, String attribute, boolean getter) {
+    String visibility = autoDetect(type, attribute);
+    if(visibility == null) {
+      return e -> getter;
+    }
+
+    switch(visibility) {
+      case "ANY":
+        return e -> true;
+      case "PUBLIC_ONLY":
+        return e -> e.getModifiers().contains(Modifier.PUBLIC);
+      case "PROTECTED_AND_PUBLIC":
+        return e -> e.getModifiers().contains(Modifier.PUBLIC) || e.getModifiers().contains(Modifier.PROTECTED);
+      case "NON_PRIVATE":
+        return e -> !e.getModifiers().contains(Modifier.PRIVATE);
+      case "DEFAULT":
+        return e -> getter;
+      default:
+        return e -> false;
+    }
+  }
+
+  /**
+   * Returns the name of the visibility set on the class's {@code @JsonAutoDetect}, {@code DEFAULT}
+   * if the attribute is not set, or null if the class is not annotated
+   */
+  private String autoDetect(TypeElement type, String attribute) {
+    for(AnnotationMirror annotation : type.getAnnotationMirrors()) {
+      if(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(AUTO_DETECT_ANNOTATION)) {
+        for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : annotation.getElementValues().entrySet()) {
+          if(e.getKey().getSimpleName().contentEquals(attribute)) {
+            return ((VariableElement) e.getValue().getValue()).getSimpleName().toString();
+          }
+        }
+        return "DEFAULT";
+      }
+    }
+    return null;
+  }
+
+  private TypeElement superclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    if(superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+    return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+  }
+
+  private static TypeElement declaringType(Element member) {
+    return (TypeElement) member.getEnclosingElement();
+  }
+
+  private static boolean isGetter(ExecutableElement method) {
+    return method.getSimpleName().toString().startsWith("get") && method.getParameters().isEmpty() && !isType(method.getReturnType(), "java.lang.Void");
+  }
+
+  private static boolean isBooleanGetter(ExecutableElement method) {
+    String name = method.getSimpleName().toString();
+    return name.startsWith("is") && name.length() > 2 && method.getParameters().isEmpty() &&
+        (method.getReturnType().getKind() == TypeKind.BOOLEAN || isType(method.getReturnType(), "java.lang.Boolean"));
+  }
+
+  private static boolean isType(TypeMirror type, String qualifiedName) {
+    return type.getKind() == TypeKind.DECLARED &&
+        ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+  }
+
+  private static String propertyName(ExecutableElement method) {
+    String getterName = method.getSimpleName().toString();
+    if(getterName.equals("get")) {
+      return getterName;
+    }
+    String name = isBooleanGetter(method) ? getterName.substring(2) : getterName.replaceFirst("get", "");
+    return name.substring(0, 1).toLowerCase() + name.substring(1);
+  }
+
+  private static class Property {
+    private final String name;
+    private final Element member;
+    //every member whose annotations apply to this property, starting with the member itself
+    private final List<Element> sources = new ArrayList<>();
+
+    Property(String name, Element member, Property merged) {
+      this.name = name;
+      this.member = member;
+      this.sources.add(member);
+      if(merged != null) {
+        this.sources.addAll(merged.sources);
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.monitorjbl.json;
+
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link OutputStream} that writes into a {@link ByteBuffer}. Works with both heap
+ * and direct buffers. A fixed stream writes into the buffer it was given and throws
+ * {@link BufferOverflowException} when it runs out of room; a growable stream replaces
+ * its buffer with a larger one of the same kind instead.
+ */
+public class ByteBufferOutputStream extends OutputStream {
+  private final boolean growable;
+  private ByteBuffer buffer;
+
+  /**
+   * Creates a fixed stream that writes into the provided buffer, starting at its
+   * current position.
+   *
+   * @param buffer The buffer to write to
+   */
+  public ByteBufferOutputStream(ByteBuffer buffer) {
+    this(buffer, false);
+  }
+
+  private ByteBufferOutputStream(ByteBuffer buffer, boolean growable) {
+    this.buffer = buffer;
+    this.growable = growable;
+  }
+
+  /**
+   * Creates a stream whose buffer grows as needed.
+   *
+   * @param initialCapacity The capacity of the first buffer
+   * @param direct          Whether to allocate direct buffers
+   * @return ByteBufferOutputStream
+   */
+  public static ByteBufferOutputStream growable(int initialCapacity, boolean direct) {
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(initialCapacity) : ByteBuffer.allocate(initialCapacity);
+    return new ByteBufferOutputStream(buffer, true);
+  }
+
+  @Override
+  public void write(int b) {
+    ensureRemaining(1);
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureRemaining(len);
+    buffer.put(b, off, len);
+  }
+
+  /**
+   * Returns the buffer currently being written to. For growable streams, this may
+   * not be the buffer that was originally allocated.
+   *
+   * @return ByteBuffer
+   */
+  public ByteBuffer buffer() {
+    return buffer;
+  }
+
+  /**
+   * Discards everything written so far, keeping the current buffer for reuse.
+   */
+  public void reset() {
+    buffer.clear();
+  }
+
+  private void ensureRemaining(int len) {
+    if(buffer.remaining() >= len) {
+      return;
+    } else if(!growable) {
+      throw new BufferOverflowException();
+    }
+
+    int capacity = Math.max(buffer.capacity() * 2, buffer.position() + len);
+    ByteBuffer grown = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+}
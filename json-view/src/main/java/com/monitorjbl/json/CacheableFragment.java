@@ -0,0 +1,30 @@
+package com.monitorjbl.json;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class, or a single property, as immutable enough to have its serialized form
+ * reused. When a {@link FragmentCache} is set on the {@link JsonViewSerializer}, values
+ * marked this way are serialized once per view and path, and the cached JSON is written
+ * directly on every later occurrence.
+ * <p>
+ * By default, values are cached by identity. If the value has a property that changes
+ * whenever its contents do, name it with {@link #version()} and a value whose version
+ * changes is serialized again. Versioned values are cached by version together with their
+ * identity, or with their id if their class takes its
+ * {@link com.fasterxml.jackson.annotation.JsonIdentityInfo} from a property, in which case
+ * distinct objects with the same id and version share their JSON.
+ */
+@Target({ElementType.TYPE, ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheableFragment {
+  /**
+   * Name of the property holding the value's version, if any.
+   *
+   * @return The property name
+   */
+  String version() default "";
+}
@@ -0,0 +1,106 @@
+package com.monitorjbl.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records why each property of a view was written or left out, to diagnose fields that
+ * unexpectedly appear or disappear. Every property considered during serialization gets
+ * one {@link Decision}, naming the include or exclude pattern, annotation or other rule
+ * that decided it.
+ * <p>
+ * Tracing is enabled per view with {@link JsonView#withTrace(DecisionTrace)}, so a single
+ * request can be traced without slowing down any others. Views without a trace are not
+ * affected at all.
+ */
+public class DecisionTrace {
+  private final List<Decision> decisions = new ArrayList<>();
+
+  synchronized void record(Decision decision) {
+    decisions.add(decision);
+  }
+
+  /**
+   * Returns every decision in the order they were made
+   *
+   * @return List
+   */
+  public synchronized List<Decision> getDecisions() {
+    return Collections.unmodifiableList(new ArrayList<>(decisions));
+  }
+
+  /**
+   * Returns the decisions made for a path, such as {@code orders.items.product}. Paths
+   * inside lists or maps have a decision for every element.
+   *
+   * @param path The path of the property
+   * @return List
+   */
+  public synchronized List<Decision> forPath(String path) {
+    return decisions.stream().filter(d -> d.path.equals(path)).collect(Collectors.toList());
+  }
+
+  @Override
+  public synchronized String toString() {
+    return decisions.stream().map(Decision::toString).collect(Collectors.joining("\n"));
+  }
+
+  /**
+   * The outcome for a single property of a single object
+   */
+  public static class Decision {
+    private final String path;
+    private final Class<?> declaringClass;
+    private final Match match;
+    private final boolean written;
+    private final String reason;
+
+    Decision(String path, Class<?> declaringClass, Match match, boolean written, String reason) {
+      this.path = path;
+      this.declaringClass = declaringClass;
+      this.match = match;
+      this.written = written;
+      this.reason = reason;
+    }
+
+    /**
+     * Returns the path of the property, made of the JSON names of its parents
+     */
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Returns the class of the object the property belongs to
+     */
+    public Class<?> getDeclaringClass() {
+      return declaringClass;
+    }
+
+    /**
+     * Returns the match that applied to the property, or null if there was none
+     */
+    public Match getMatch() {
+      return match;
+    }
+
+    public boolean isWritten() {
+      return written;
+    }
+
+    /**
+     * Returns what decided the outcome, such as {@code exclude "str*"} or
+     * {@code @JsonIgnore}
+     */
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return path + " (" + declaringClass.getSimpleName() + "): " + (written ? "written" : "omitted") + ", " + reason;
+    }
+  }
+}
@@ -0,0 +1,414 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.Base64Variant;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.util.JsonGeneratorDelegate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ContainerNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.monitorjbl.json.JsonViewSnapshot.mix;
+
+/**
+ * Computes a {@link JsonViewDelta} from the tokens of a view while it is being written,
+ * instead of writing them out. Every value is hashed as its tokens go by and compared with
+ * the previous snapshot at the same path. Objects that were objects before are compared
+ * property by property, and JSON nodes are only built for the values that changed, and for
+ * the contents of arrays, which Merge Patch replaces as a whole.
+ * <p>
+ * Nothing is forwarded to the delegate, which is only there for its write context.
+ */
+class DeltaGenerator extends JsonGeneratorDelegate {
+  private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+  private final JsonViewSnapshot previous;
+  private final List<String> changedPaths = new ArrayList<>();
+  private Level level;
+  private JsonViewSnapshot snapshot;
+  private JsonNode patch;
+
+  DeltaGenerator(JsonGenerator delegate, JsonViewSnapshot previous) {
+    super(delegate, false);
+    this.previous = previous;
+  }
+
+  JsonViewDelta delta() {
+    return new JsonViewDelta(patch, changedPaths, snapshot);
+  }
+
+  /**
+   * An object or array being written. Objects that had an object at the same path in the
+   * previous snapshot are compared, and only collect a patch of their changed properties.
+   * Everything else is built in full, because it is either new or part of an array.
+   */
+  private static class Level {
+    final Level parent;
+    final boolean object;
+    final JsonViewSnapshot previous;
+    final String pointer;
+    final ContainerNode<?> node;
+    final Map<String, JsonViewSnapshot> fields;
+    ObjectNode patch;
+    long hash;
+    String name;
+
+    Level(Level parent, boolean object, JsonViewSnapshot previous, String pointer, ContainerNode<?> node,
+          Map<String, JsonViewSnapshot> fields) {
+      this.parent = parent;
+      this.object = object;
+      this.previous = previous;
+      this.pointer = pointer;
+      this.node = node;
+      this.fields = fields;
+      this.hash = object ? 0 : JsonViewSnapshot.ARRAY_SEED;
+    }
+
+    boolean compared() {
+      return node == null;
+    }
+
+    ObjectNode patch() {
+      if(patch == null) {
+        patch = nodes.objectNode();
+      }
+      return patch;
+    }
+
+    String pointer(String name) {
+      return pointer + "/" + JsonViewDelta.escape(name);
+    }
+  }
+
+  /**
+   * Returns the previous snapshot of the value about to be written, or null if there was
+   * none or the value is being built in full anyway
+   */
+  private JsonViewSnapshot previousValue() {
+    if(level == null) {
+      return previous;
+    }
+    return level.compared() ? level.previous.fields.get(level.name) : null;
+  }
+
+  /**
+   * Returns whether a scalar with the given hash has to be turned into a node
+   */
+  private boolean wanted(long hash) {
+    if(level != null && !level.compared()) {
+      return true;
+    }
+    JsonViewSnapshot prev = previousValue();
+    return prev == null || prev.hash != hash;
+  }
+
+  private void start(boolean object) {
+    JsonViewSnapshot prev = previousValue();
+    if(object && prev != null && prev.isObject()) {
+      String pointer = level == null ? "" : level.pointer(level.name);
+      level = new Level(level, true, prev, pointer, null, new HashMap<>());
+    } else {
+      //only objects whose snapshot is kept need their properties' snapshots
+      boolean keep = object && (level == null || level.fields != null);
+      level = new Level(level, object, null, null, object ? nodes.objectNode() : nodes.arrayNode(),
+          keep ? new HashMap<>() : null);
+    }
+  }
+
+  /**
+   * Adds a finished value to the object or array it belongs to, and records it in the
+   * patch if it changed
+   *
+   * @param fields   The snapshots of an object's properties, if they were kept
+   * @param value    The value, or its patch if it was compared; may be null if not wanted
+   * @param compared Whether the value's changed paths have already been recorded
+   */
+  private JsonGenerator complete(long hash, Map<String, JsonViewSnapshot> fields, JsonNode value, boolean compared) {
+    if(level == null) {
+      snapshot = new JsonViewSnapshot(hash, fields);
+      if(previous == null || previous.hash != hash) {
+        patch = value;
+        if(!compared) {
+          changedPaths.add("");
+        }
+      }
+    } else if(!level.object) {
+      level.hash = mix(level.hash, hash);
+      ((ArrayNode) level.node).add(value);
+    } else {
+      String name = level.name;
+      level.name = null;
+      level.hash += mix(JsonViewSnapshot.hash(name), hash);
+      if(level.fields != null) {
+        level.fields.put(name, new JsonViewSnapshot(hash, fields));
+      }
+      if(!level.compared()) {
+        ((ObjectNode) level.node).set(name, value);
+      } else {
+        JsonViewSnapshot prev = level.previous.fields.get(name);
+        if(prev == null || prev.hash != hash) {
+          level.patch().set(name, value);
+          if(!compared) {
+            changedPaths.add(level.pointer(name));
+          }
+        }
+      }
+    }
+    return this;
+  }
+
+  private JsonGenerator scalar(long hash, JsonNode value) {
+    return complete(hash, null, value, false);
+  }
+
+  @Override
+  public JsonGenerator writeStartArray() {
+    start(false);
+    return this;
+  }
+
+  @Override
+  public JsonGenerator writeStartArray(Object currentValue) {
+    return writeStartArray();
+  }
+
+  @Override
+  public JsonGenerator writeStartArray(Object currentValue, int size) {
+    return writeStartArray();
+  }
+
+  @Override
+  public JsonGenerator writeEndArray() {
+    Level done = level;
+    level = done.parent;
+    return complete(done.hash, null, done.node, false);
+  }
+
+  @Override
+  public JsonGenerator writeStartObject() {
+    start(true);
+    return this;
+  }
+
+  @Override
+  public JsonGenerator writeStartObject(Object currentValue) {
+    return writeStartObject();
+  }
+
+  @Override
+  public JsonGenerator writeStartObject(Object currentValue, int size) {
+    return writeStartObject();
+  }
+
+  @Override
+  public JsonGenerator writeEndObject() {
+    Level done = level;
+    level = done.parent;
+    long hash = mix(JsonViewSnapshot.OBJECT_SEED, done.hash);
+    if(!done.compared()) {
+      return complete(hash, done.fields, done.node, false);
+    }
+
+    for(String name : done.previous.fields.keySet()) {
+      if(!done.fields.containsKey(name)) {
+        done.patch().putNull(name);
+        changedPaths.add(done.pointer(name));
+      }
+    }
+    return complete(hash, done.fields, done.previous.hash != hash ? done.patch() : null, true);
+  }
+
+  @Override
+  public JsonGenerator writeName(String name) {
+    level.name = name;
+    return this;
+  }
+
+  @Override
+  public JsonGenerator writeName(SerializableString name) {
+    return writeName(name.getValue());
+  }
+
+  @Override
+  public JsonGenerator writePropertyId(long id) {
+    return writeName(Long.toString(id));
+  }
+
+  @Override
+  public JsonGenerator writeArray(int[] array, int offset, int length) {
+    writeStartArray(array, length);
+    for(int i = offset; i < offset + length; i++) {
+      writeNumber(array[i]);
+    }
+    return writeEndArray();
+  }
+
+  @Override
+  public JsonGenerator writeArray(long[] array, int offset, int length) {
+    writeStartArray(array, length);
+    for(int i = offset; i < offset + length; i++) {
+      writeNumber(array[i]);
+    }
+    return writeEndArray();
+  }
+
+  @Override
+  public JsonGenerator writeArray(double[] array, int offset, int length) {
+    writeStartArray(array, length);
+    for(int i = offset; i < offset + length; i++) {
+      writeNumber(array[i]);
+    }
+    return writeEndArray();
+  }
+
+  @Override
+  public JsonGenerator writeArray(String[] array, int offset, int length) {
+    writeStartArray(array, length);
+    for(int i = offset; i < offset + length; i++) {
+      writeString(array[i]);
+    }
+    return writeEndArray();
+  }
+
+  @Override
+  public JsonGenerator writeString(String text) {
+    if(text == null) {
+      return writeNull();
+    }
+    long hash = JsonViewSnapshot.hashString(text);
+    return scalar(hash, wanted(hash) ? nodes.stringNode(text) : null);
+  }
+
+  @Override
+  public JsonGenerator writeString(SerializableString text) {
+    return writeString(text.getValue());
+  }
+
+  @Override
+  public JsonGenerator writeString(char[] text, int offset, int len) {
+    return writeString(new String(text, offset, len));
+  }
+
+  @Override
+  public JsonGenerator writeRawUTF8String(byte[] text, int offset, int length) {
+    return writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public JsonGenerator writeUTF8String(byte[] text, int offset, int length) {
+    return writeString(new String(text, offset, length, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Raw values can't be hashed token by token, so they are read back and written as a tree
+   */
+  @Override
+  public JsonGenerator writeRawValue(String text) {
+    return writeTree(JsonMapper.shared().readTree(text));
+  }
+
+  @Override
+  public JsonGenerator writeRawValue(String text, int offset, int len) {
+    return writeRawValue(text.substring(offset, offset + len));
+  }
+
+  @Override
+  public JsonGenerator writeRawValue(char[] text, int offset, int len) {
+    return writeRawValue(new String(text, offset, len));
+  }
+
+  @Override
+  public JsonGenerator writeBinary(Base64Variant b64variant, byte[] data, int offset, int len) {
+    long hash = JsonViewSnapshot.hashBinary(data, offset, len);
+    return scalar(hash, wanted(hash) ? nodes.binaryNode(Arrays.copyOfRange(data, offset, offset + len)) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(short v) {
+    return writeNumber((int) v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(int v) {
+    long hash = JsonViewSnapshot.hashNumber(v);
+    return scalar(hash, wanted(hash) ? nodes.numberNode(v) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(long v) {
+    if(v == (int) v) {
+      return writeNumber((int) v);
+    }
+    long hash = JsonViewSnapshot.hashNumber(v);
+    return scalar(hash, wanted(hash) ? nodes.numberNode(v) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(BigInteger v) {
+    if(v == null) {
+      return writeNull();
+    } else if(v.bitLength() < 64) {
+      return writeNumber(v.longValue());
+    }
+    long hash = JsonViewSnapshot.hashNumber(v.toString());
+    return scalar(hash, wanted(hash) ? nodes.numberNode(v) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(double v) {
+    long hash = JsonViewSnapshot.hashNumber(v);
+    return scalar(hash, wanted(hash) ? nodes.numberNode(v) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(float v) {
+    //read back as the double a parser would see in the JSON text
+    return writeNumber(Double.parseDouble(Float.toString(v)));
+  }
+
+  @Override
+  public JsonGenerator writeNumber(BigDecimal v) {
+    if(v == null) {
+      return writeNull();
+    }
+    long hash = JsonViewSnapshot.hashNumber(v.toString());
+    return scalar(hash, wanted(hash) ? nodes.numberNode(v) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(String encodedValue) {
+    if(encodedValue == null) {
+      return writeNull();
+    }
+    long hash = JsonViewSnapshot.hashNumber(encodedValue);
+    return scalar(hash, wanted(hash) ? nodes.numberNode(new BigDecimal(encodedValue)) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(char[] text, int offset, int len) {
+    return writeNumber(new String(text, offset, len));
+  }
+
+  @Override
+  public JsonGenerator writeBoolean(boolean state) {
+    long hash = state ? JsonViewSnapshot.TRUE : JsonViewSnapshot.FALSE;
+    return scalar(hash, wanted(hash) ? nodes.booleanNode(state) : null);
+  }
+
+  @Override
+  public JsonGenerator writeNull() {
+    return scalar(JsonViewSnapshot.NULL, wanted(JsonViewSnapshot.NULL) ? nodes.nullNode() : null);
+  }
+}
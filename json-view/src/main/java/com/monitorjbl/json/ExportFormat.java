@@ -0,0 +1,17 @@
+package com.monitorjbl.json;
+
+/**
+ * Dictates how {@link JsonViewExporter} lays out the items it writes to a file.
+ */
+public enum ExportFormat {
+  /**
+   * Write all items of a file as a single JSON array
+   */
+  JSON_ARRAY,
+
+  /**
+   * Write one item per line, each terminated by a newline, so files
+   * can be split and read without parsing them as a whole
+   */
+  JSON_LINES
+}
@@ -0,0 +1,214 @@
+package com.monitorjbl.json;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * A compiled field selection, such as {@code id,name,orders(id,total)}. A selection can
+ * only narrow what a view would otherwise write: fields that are excluded or ignored stay
+ * hidden even if they are selected. Fields selected without a nested list are written in
+ * full.
+ * <p>
+ * Field names are the names written to JSON. Selections are immutable and can be shared
+ * between threads and views.
+ */
+public final class FieldSelection {
+  private final Map<String, FieldSelection> fields;
+  private final String expression;
+
+  private FieldSelection(Map<String, FieldSelection> fields) {
+    this.fields = Collections.unmodifiableMap(fields);
+    this.expression = normalize(fields);
+  }
+
+  /**
+   * Parses a comma-separated list of field names, where each name may be followed by a
+   * nested selection in parentheses. Whitespace between tokens is ignored.
+   *
+   * @param expression The selection to parse
+   * @return FieldSelection
+   * @throws IllegalArgumentException if the expression is malformed
+   */
+  public static FieldSelection parse(String expression) {
+    if(expression == null) {
+      throw new IllegalArgumentException("Field selection must not be null");
+    }
+
+    Parser parser = new Parser(expression);
+    FieldSelection selection = parser.list();
+    parser.skipWhitespace();
+    if(parser.pos < expression.length()) {
+      throw parser.error("Unexpected '" + expression.charAt(parser.pos) + "'");
+    }
+    return selection;
+  }
+
+  /**
+   * Returns whether the field is selected
+   *
+   * @param field The name of the field
+   * @return boolean
+   */
+  public boolean includes(String field) {
+    return fields.containsKey(field);
+  }
+
+  /**
+   * Returns the nested selection for the field, or null if the field is written in full
+   * or is not selected at all
+   *
+   * @param field The name of the field
+   * @return FieldSelection
+   */
+  public FieldSelection select(String field) {
+    return fields.get(field);
+  }
+
+  /**
+   * Returns the fields selected by both selections, so the result is never wider than
+   * either of them. A field one selection writes in full is narrowed to the other's nested
+   * selection. Either selection may be null, meaning all fields.
+   *
+   * @param a A selection, or null
+   * @param b Another selection, or null
+   * @return FieldSelection, or null if both are null
+   */
+  public static FieldSelection intersect(FieldSelection a, FieldSelection b) {
+    if(a == null || a == b) {
+      return b;
+    } else if(b == null) {
+      return a;
+    }
+
+    Map<String, FieldSelection> fields = new TreeMap<>();
+    a.fields.forEach((name, nested) -> {
+      if(b.fields.containsKey(name)) {
+        fields.put(name, intersect(nested, b.fields.get(name)));
+      }
+    });
+    return new FieldSelection(fields);
+  }
+
+  /**
+   * Returns the normalized expression, with fields sorted by name and all whitespace
+   * removed. Equal selections always have equal normalized expressions.
+   */
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) return true;
+    if(o == null || getClass() != o.getClass()) return false;
+    return expression.equals(((FieldSelection) o).expression);
+  }
+
+  @Override
+  public int hashCode() {
+    return expression.hashCode();
+  }
+
+  private static String normalize(Map<String, FieldSelection> fields) {
+    StringBuilder builder = new StringBuilder();
+    for(Entry<String, FieldSelection> e : fields.entrySet()) {
+      if(builder.length() > 0) {
+        builder.append(',');
+      }
+      builder.append(e.getKey());
+      if(e.getValue() != null) {
+        builder.append('(').append(e.getValue().expression).append(')');
+      }
+    }
+    return builder.toString();
+  }
+
+  private static class Parser {
+    private final String expression;
+    private int pos = 0;
+
+    Parser(String expression) {
+      this.expression = expression;
+    }
+
+    FieldSelection list() {
+      Map<String, FieldSelection> fields = new TreeMap<>();
+      do {
+        skipWhitespace();
+        String name = name();
+        skipWhitespace();
+
+        FieldSelection nested = null;
+        if(peek() == '(') {
+          pos++;
+          nested = list();
+          skipWhitespace();
+          if(peek() != ')') {
+            throw error("Expected ')'");
+          }
+          pos++;
+          skipWhitespace();
+        }
+        put(fields, name, nested);
+      } while(consume(','));
+      return new FieldSelection(fields);
+    }
+
+    String name() {
+      int start = pos;
+      while(pos < expression.length() && isNameChar(expression.charAt(pos))) {
+        pos++;
+      }
+      if(start == pos) {
+        throw error("Expected a field name");
+      }
+      return expression.substring(start, pos);
+    }
+
+    boolean consume(char c) {
+      if(peek() == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    char peek() {
+      return pos < expression.length() ? expression.charAt(pos) : 0;
+    }
+
+    void skipWhitespace() {
+      while(pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at position " + pos + " of field selection '" + expression + "'");
+    }
+
+    private static boolean isNameChar(char c) {
+      return c != ',' && c != '(' && c != ')' && !Character.isWhitespace(c);
+    }
+  }
+
+  /**
+   * Combines two selections of the same field. A field selected in full stays in full.
+   */
+  private static FieldSelection merge(FieldSelection a, FieldSelection b) {
+    if(a == null || b == null) {
+      return null;
+    }
+
+    Map<String, FieldSelection> fields = new TreeMap<>(a.fields);
+    b.fields.forEach((name, nested) -> put(fields, name, nested));
+    return new FieldSelection(fields);
+  }
+
+  private static void put(Map<String, FieldSelection> fields, String name, FieldSelection nested) {
+    fields.put(name, fields.containsKey(name) ? merge(fields.get(name), nested) : nested);
+  }
+}
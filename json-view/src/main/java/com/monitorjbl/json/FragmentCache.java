@@ -0,0 +1,95 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.SerializableString;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used store of serialized JSON fragments for values marked
+ * with {@link CacheableFragment}. Size is accounted in characters of serialized JSON.
+ * Instances are thread-safe and can be shared between serializers.
+ */
+public class FragmentCache {
+  private final long maxSize;
+  private final LinkedHashMap<Object, SerializableString> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long size = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  /**
+   * @param maxSize Maximum number of characters of JSON to keep
+   */
+  public FragmentCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  synchronized SerializableString get(Object key) {
+    SerializableString fragment = entries.get(key);
+    if(fragment != null) {
+      hitCount++;
+    } else {
+      missCount++;
+    }
+    return fragment;
+  }
+
+  synchronized void put(Object key, SerializableString fragment) {
+    if(fragment.charLength() > maxSize) {
+      return;
+    }
+
+    SerializableString previous = entries.put(key, fragment);
+    if(previous != null) {
+      size -= previous.charLength();
+    }
+    size += fragment.charLength();
+
+    Iterator<Map.Entry<Object, SerializableString>> iter = entries.entrySet().iterator();
+    while(size > maxSize && iter.hasNext()) {
+      size -= iter.next().getValue().charLength();
+      iter.remove();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Removes all fragments from the cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+   * @return Number of characters of JSON currently cached
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return Number of fragments currently cached
+   */
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+}
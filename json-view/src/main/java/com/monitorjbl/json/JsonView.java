@@ -1,5 +1,6 @@
 package com.monitorjbl.json;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -9,8 +10,13 @@ import java.util.Objects;
  */
 public class JsonView<T> {
   protected final T value;
-  protected final Map<Class<?>, Match> matches = new HashMap<>();
+  protected Map<Class<?>, Match> matches = new HashMap<>();
   protected MatcherBehavior matcherBehavior;
+  protected FieldSelection fieldSelection;
+  protected DecisionTrace trace;
+  private volatile boolean frozen = false;
+  private int fingerprint;
+  private int matchesFingerprint;
 
   protected JsonView(T value) {
     this.value = value;
@@ -20,32 +26,141 @@ public class JsonView<T> {
     return value;
   }
 
+  FieldSelection getFieldSelection() {
+    return fieldSelection;
+  }
+
+  DecisionTrace getTrace() {
+    return trace;
+  }
+
   Match getMatch(Class<?> cls) {
     return matches.get(cls);
   }
 
+  Map<Class<?>, Match> getMatches() {
+    return matches;
+  }
+
+  /**
+   * Returns the hash code of the matches alone, computed when the view is frozen
+   */
+  int getMatchesFingerprint() {
+    return matchesFingerprint;
+  }
+
   public JsonView<T> onClass(Class<?> cls, Match match) {
+    checkNotFrozen();
     matches.put(cls, match);
     return this;
   }
 
   public JsonView<T> withMatcherBehavior(MatcherBehavior matcherBehavior) {
+    checkNotFrozen();
     this.matcherBehavior = matcherBehavior;
     return this;
   }
 
+  /**
+   * Restrict serialization to the selected fields. The selection is applied on top of
+   * any matches, so it can only hide fields that would otherwise be written.
+   *
+   * @param fieldSelection The fields to write, or null to write all of them
+   * @return JsonView
+   */
+  public JsonView<T> withFieldSelection(FieldSelection fieldSelection) {
+    checkNotFrozen();
+    this.fieldSelection = fieldSelection;
+    return this;
+  }
+
+  /**
+   * Record why each property was written or left out when this view is serialized. The
+   * trace is not part of the view's identity, so it does not affect caching.
+   *
+   * @param trace The trace to record into, or null to stop tracing
+   * @return JsonView
+   */
+  public JsonView<T> withTrace(DecisionTrace trace) {
+    checkNotFrozen();
+    this.trace = trace;
+    return this;
+  }
+
+  /**
+   * Make this view and its matches immutable. Views are frozen automatically when they
+   * are serialized, after which they can be serialized again but no longer modified.
+   *
+   * @return JsonView
+   */
+  public JsonView<T> freeze() {
+    if(!frozen) {
+      synchronized(this) {
+        if(!frozen) {
+          matches.values().stream().filter(Objects::nonNull).forEach(Match::freeze);
+          matches = Collections.unmodifiableMap(matches);
+          matchesFingerprint = matches.hashCode();
+          fingerprint = computeHashCode();
+          frozen = true;
+        }
+      }
+    }
+    return this;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Returns a frozen view of another value with the same matches, behavior and selection.
+   * This view is frozen first, so both share the same immutable matches.
+   */
+  <E> JsonView<E> withValue(E value) {
+    return withValue(value, fieldSelection);
+  }
+
+  /**
+   * Returns a frozen view of another value with the same matches and behavior, but the
+   * given field selection.
+   */
+  <E> JsonView<E> withValue(E value, FieldSelection fieldSelection) {
+    freeze();
+    JsonView<E> view = new JsonView<>(value);
+    view.matches = matches;
+    view.matchesFingerprint = matchesFingerprint;
+    view.matcherBehavior = matcherBehavior;
+    view.fieldSelection = fieldSelection;
+    view.trace = trace;
+    view.fingerprint = Objects.equals(fieldSelection, this.fieldSelection) ? fingerprint : view.computeHashCode();
+    view.frozen = true;
+    return view;
+  }
+
+  private void checkNotFrozen() {
+    if(frozen) {
+      throw new IllegalStateException("JsonView has already been serialized and can no longer be modified");
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if(this == o) return true;
     if(o == null || getClass() != o.getClass()) return false;
     JsonView<?> jsonView = (JsonView<?>) o;
+    if(frozen && jsonView.frozen && fingerprint != jsonView.fingerprint) return false;
     return Objects.equals(matches, jsonView.matches) &&
-        matcherBehavior == jsonView.matcherBehavior;
+        matcherBehavior == jsonView.matcherBehavior &&
+        Objects.equals(fieldSelection, jsonView.fieldSelection);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(matches, matcherBehavior);
+    return frozen ? fingerprint : computeHashCode();
+  }
+
+  private int computeHashCode() {
+    return Objects.hash(matches, matcherBehavior, fieldSelection);
   }
 
   public static <E> JsonView<E> with(E value) {
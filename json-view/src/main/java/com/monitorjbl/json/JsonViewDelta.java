@@ -0,0 +1,76 @@
+package com.monitorjbl.json;
+
+import tools.jackson.databind.JsonNode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The difference between a serialized view and an earlier {@link JsonViewSnapshot} of the
+ * same view. The difference is available as a JSON Merge Patch (RFC 7396) and as the list
+ * of changed paths, as JSON Pointers (RFC 6901).
+ * <p>
+ * Objects are compared property by property. Arrays and scalar values are replaced as a
+ * whole when anything in them changed, as Merge Patch requires. Removed properties are
+ * patched with {@code null}, so a property whose value changes to {@code null} is also
+ * reported as removed.
+ * <p>
+ * The comparison is made while the view is written: each value is hashed as its tokens go
+ * by and checked against the snapshot at the same path, and only changed values are kept.
+ * <p>
+ * Use {@link JsonViewWriter#delta(JsonView, JsonViewSnapshot)} to create one.
+ */
+public final class JsonViewDelta {
+  private final JsonNode patch;
+  private final List<String> changedPaths;
+  private final JsonViewSnapshot snapshot;
+
+  JsonViewDelta(JsonNode patch, List<String> changedPaths, JsonViewSnapshot snapshot) {
+    this.patch = patch;
+    this.changedPaths = Collections.unmodifiableList(changedPaths);
+    this.snapshot = snapshot;
+  }
+
+  static String escape(String name) {
+    return name.replace("~", "~0").replace("/", "~1");
+  }
+
+  /**
+   * Returns whether nothing changed since the previous snapshot
+   *
+   * @return boolean
+   */
+  public boolean isEmpty() {
+    return patch == null;
+  }
+
+  /**
+   * Returns the JSON Merge Patch that turns the previously serialized JSON into the current
+   * one. If there was no previous snapshot, this is the full document. Returns null if
+   * nothing changed.
+   *
+   * @return JsonNode
+   */
+  public JsonNode patch() {
+    return patch;
+  }
+
+  /**
+   * Returns the JSON Pointers of every changed or added value in document order, followed by
+   * those of removed properties. The empty pointer means the whole document changed.
+   *
+   * @return List
+   */
+  public List<String> changedPaths() {
+    return changedPaths;
+  }
+
+  /**
+   * Returns the snapshot of the current JSON, to be passed in when computing the next delta
+   *
+   * @return JsonViewSnapshot
+   */
+  public JsonViewSnapshot snapshot() {
+    return snapshot;
+  }
+}
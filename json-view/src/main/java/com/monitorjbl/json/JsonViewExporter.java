@@ -0,0 +1,273 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes large numbers of items to files, each through its own {@link JsonView}. Items
+ * are streamed from the source one at a time and written through a large buffer into a
+ * {@link FileChannel}. Exports can be spread over several files, each
+ * written by its own thread.
+ * <p>
+ * Instances are thread-safe and can be reused. Use {@link JsonViewWriter#exporter()} to
+ * create one.
+ */
+public class JsonViewExporter {
+  private final ObjectWriter writer;
+
+  private ExportFormat format = ExportFormat.JSON_ARRAY;
+  private int shards = 1;
+  private int bufferSize = 1 << 20;
+  private int batchSize = 256;
+
+  JsonViewExporter(ObjectWriter writer) {
+    this.writer = writer
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .withRootValueSeparator((String) null);
+  }
+
+  /**
+   * Set how items are laid out in each file. Defaults to {@link ExportFormat#JSON_ARRAY}.
+   *
+   * @param format The format to write
+   * @return JsonViewExporter
+   */
+  public JsonViewExporter withFormat(ExportFormat format) {
+    this.format = format;
+    return this;
+  }
+
+  /**
+   * Set how many files to spread an export over. Each file is written by its own thread,
+   * and is named after the target file with its index inserted before the extension,
+   * such as {@code orders-0.json}. Items are handed out in batches, so their order is not
+   * preserved across files.
+   *
+   * @param shards Number of files and threads
+   * @return JsonViewExporter
+   */
+  public JsonViewExporter withShards(int shards) {
+    if(shards < 1) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    this.shards = shards;
+    return this;
+  }
+
+  /**
+   * Set the size of the buffer each file is written through. Defaults to 1 MiB.
+   *
+   * @param bufferSize Size in bytes
+   * @return JsonViewExporter
+   */
+  public JsonViewExporter withBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+    return this;
+  }
+
+  /**
+   * Set how many items a shard takes from the source at a time.
+   *
+   * @param batchSize Number of items
+   * @return JsonViewExporter
+   */
+  public JsonViewExporter withBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * Export the items, closing the stream when done.
+   *
+   * @param items The items to write
+   * @param view  Creates the view to write each item with
+   * @param file  The file to write, replacing it if it exists
+   * @param <T>   The type of the items
+   * @return Statistics about the export
+   */
+  public <T> Result export(Stream<T> items, Function<? super T, JsonView<?>> view, Path file) {
+    try(Stream<T> stream = items) {
+      return export(stream::iterator, view, file);
+    }
+  }
+
+  /**
+   * Export the items.
+   *
+   * @param items The items to write
+   * @param view  Creates the view to write each item with
+   * @param file  The file to write, replacing it if it exists
+   * @param <T>   The type of the items
+   * @return Statistics about the export
+   */
+  public <T> Result export(Iterable<T> items, Function<? super T, JsonView<?>> view, Path file) {
+    long start = System.nanoTime();
+    Source<T> source = new Source<>(items.iterator());
+    List<Path> files = new ArrayList<>();
+
+    if(shards == 1) {
+      files.add(file);
+      long bytes = writeShard(source, view, file);
+      return new Result(source.taken, bytes, files, System.nanoTime() - start);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(shards);
+    try {
+      List<Future<Long>> futures = new ArrayList<>();
+      for(int i = 0; i < shards; i++) {
+        Path shard = shardPath(file, i);
+        files.add(shard);
+        futures.add(executor.submit(() -> writeShard(source, view, shard)));
+      }
+
+      long bytes = 0;
+      for(Future<Long> future : futures) {
+        bytes += future.get();
+      }
+      return new Result(source.taken, bytes, files, System.nanoTime() - start);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private <T> long writeShard(Source<T> source, Function<? super T, JsonView<?>> view, Path file) {
+    //heap buffers are written through the JDK's cached direct buffers, so none are allocated per file
+    try(OutputStream out = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)), bufferSize);
+        JsonGenerator jgen = writer.createGenerator(out)) {
+      if(format == ExportFormat.JSON_ARRAY) {
+        jgen.writeStartArray();
+      }
+
+      List<T> batch = new ArrayList<>(batchSize);
+      while(source.take(batch, batchSize)) {
+        for(T item : batch) {
+          writer.writeValue(jgen, view.apply(item));
+          if(format == ExportFormat.JSON_LINES) {
+            jgen.writeRaw('\n');
+          }
+        }
+        batch.clear();
+      }
+
+      if(format == ExportFormat.JSON_ARRAY) {
+        jgen.writeEndArray();
+      }
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    try {
+      return Files.size(file);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Path shardPath(Path file, int index) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String shard = dot > 0 ? name.substring(0, dot) + "-" + index + name.substring(dot) : name + "-" + index;
+    return file.resolveSibling(shard);
+  }
+
+  /**
+   * Hands out items to shards in batches
+   */
+  private static class Source<T> {
+    private final Iterator<T> iterator;
+    private long taken = 0;
+
+    Source(Iterator<T> iterator) {
+      this.iterator = iterator;
+    }
+
+    synchronized boolean take(List<T> batch, int size) {
+      while(batch.size() < size && iterator.hasNext()) {
+        batch.add(iterator.next());
+      }
+      taken += batch.size();
+      return !batch.isEmpty();
+    }
+  }
+
+  /**
+   * Statistics about a finished export
+   */
+  public static class Result {
+    private final long items;
+    private final long bytes;
+    private final List<Path> files;
+    private final long elapsedNanos;
+
+    Result(long items, long bytes, List<Path> files, long elapsedNanos) {
+      this.items = items;
+      this.bytes = bytes;
+      this.files = Collections.unmodifiableList(files);
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getItems() {
+      return items;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public List<Path> getFiles() {
+      return files;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getItemsPerSecond() {
+      return items / seconds();
+    }
+
+    public double getBytesPerSecond() {
+      return bytes / seconds();
+    }
+
+    private double seconds() {
+      return Math.max(elapsedNanos, 1) / 1e9;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Exported %d items (%d bytes) to %d file(s) in %.1fms: %.0f items/s, %.1f MB/s",
+          items, bytes, files.size(), elapsedNanos / 1e6, getItemsPerSecond(), getBytesPerSecond() / (1024 * 1024));
+    }
+  }
+}
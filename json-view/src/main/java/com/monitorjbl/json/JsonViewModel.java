@@ -0,0 +1,19 @@
+package com.monitorjbl.json;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the {@code json-view-processor} annotation processor should
+ * generate property metadata at compile time. When the generated class is present,
+ * {@link JsonViewSerializer} reads its list of properties instead of discovering them
+ * through reflection, and reads values through direct field and getter calls.
+ * <p>
+ * Without the processor on the compiler's path, this annotation has no effect.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface JsonViewModel {
+}
@@ -23,6 +23,21 @@ public class JsonViewModule extends SimpleModule {
     return this;
   }
 
+  public JsonViewModule withTraversalMode(TraversalMode traversalMode) {
+    this.jsonView.setTraversalMode(traversalMode);
+    return this;
+  }
+
+  public JsonViewModule withReferenceTracking(boolean referenceTracking) {
+    this.jsonView.setReferenceTracking(referenceTracking);
+    return this;
+  }
+
+  public JsonViewModule withFragmentCache(FragmentCache fragmentCache) {
+    this.jsonView.setFragmentCache(fragmentCache);
+    return this;
+  }
+
   public <E> JsonViewModule registerSerializer(Class<E> cls, ValueSerializer<E> serializer) {
     jsonView.registerCustomSerializer(cls, serializer);
     return this;
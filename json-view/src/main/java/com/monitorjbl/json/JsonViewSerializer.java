@@ -2,32 +2,55 @@ package com.monitorjbl.json;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import tools.jackson.databind.annotation.JsonSerialize;
 import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.io.SerializedString;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.ValueSerializer;
 import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URL;
+import java.time.Duration;
 import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,8 +59,17 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.Stack;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -47,6 +79,13 @@ import static com.monitorjbl.json.MatcherBehavior.PATH_FIRST;
 import static java.util.Arrays.asList;
 
 public class JsonViewSerializer extends ValueSerializer<JsonView> {
+  /**
+   * Has never had any effect, and is still ignored.
+   *
+   * @deprecated Use {@link JsonView#withTrace(DecisionTrace)} to see why properties were
+   * written or left out. This field will be removed in the next major release.
+   */
+  @Deprecated
   public static boolean log = false;
   /**
    * Cached results from expensive (pure) methods
@@ -60,6 +99,18 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
 
   private MatcherBehavior defaultMatcherBehavior = CLASS_FIRST;
 
+  private TraversalMode traversalMode = TraversalMode.RECURSIVE;
+
+  private boolean referenceTracking = false;
+
+  private FragmentCache fragmentCache = null;
+
+  private SerializationProfiler profiler = null;
+
+  private Executor asyncExecutor = null;
+
+  private Duration asyncTimeout = Duration.ofSeconds(30);
+
   public JsonViewSerializer() {
     this(1024);
   }
@@ -120,45 +171,327 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
     this.defaultMatcherBehavior = defaultMatcherBehavior;
   }
 
+  /**
+   * Set how nested objects are walked. Use {@link TraversalMode#ITERATIVE} if
+   * serializing very deeply nested objects.
+   *
+   * @param traversalMode The traversal mode to use
+   */
+  public void setTraversalMode(TraversalMode traversalMode) {
+    this.traversalMode = traversalMode;
+  }
+
+  /**
+   * Enable tracking of every object written during a serialization. When enabled, cycles
+   * are reported as errors instead of overflowing the stack, and classes annotated with
+   * {@link JsonIdentityInfo} are written in full only once; every later reference to the
+   * same instance is written as its id.
+   *
+   * @param referenceTracking Whether to track references
+   */
+  public void setReferenceTracking(boolean referenceTracking) {
+    this.referenceTracking = referenceTracking;
+  }
+
+  /**
+   * Set the cache used to store the serialized form of values marked with {@link CacheableFragment}.
+   * Fragments are not cached while reference tracking is enabled or output is pretty-printed.
+   *
+   * @param fragmentCache The cache to use, or null to disable fragment caching
+   */
+  public void setFragmentCache(FragmentCache fragmentCache) {
+    this.fragmentCache = fragmentCache;
+  }
+
+  /**
+   * Set the profiler that records the cost of each property path. Only serializations
+   * sampled by the profiler are measured; the others run at full speed.
+   *
+   * @param profiler The profiler to use, or null to disable profiling
+   */
+  public void setProfiler(SerializationProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Set the executor used to resolve asynchronous properties. When set, properties typed
+   * as {@link CompletionStage}, {@link Future} or {@link Supplier} are resolved and their
+   * results written in their place. As soon as an object is opened, every such property
+   * included by the view is started, so the lookups of one object run concurrently;
+   * suppliers of excluded properties are never called. Each supplier is called at most
+   * once per serialization, even when several views are written together.
+   *
+   * @param asyncExecutor The executor to run suppliers on, or null to write asynchronous
+   *                      properties like any other value
+   */
+  public void setAsyncExecutor(Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  /**
+   * Set how long to wait for asynchronous properties, counted from when the first one of a
+   * serialization was started. The timeout bounds the whole serialization rather than each
+   * object, however deeply the properties are nested. Defaults to 30 seconds.
+   *
+   * @param asyncTimeout The time to wait
+   */
+  public void setAsyncTimeout(Duration asyncTimeout) {
+    if(asyncTimeout == null || asyncTimeout.isNegative()) {
+      throw new IllegalArgumentException("Timeout must not be negative");
+    }
+    this.asyncTimeout = asyncTimeout;
+  }
+
+  /**
+   * Creates a writer that serializes views with this serializer directly into streams,
+   * caller-supplied {@link java.nio.ByteBuffer}s or pooled buffers.
+   *
+   * @param mapper The mapper whose configuration should be used
+   * @return JsonViewWriter
+   */
+  public JsonViewWriter writer(ObjectMapper mapper) {
+    return new JsonViewWriter(mapper, this);
+  }
+
+  /**
+   * Discover the properties and annotations of the given classes, and of every class
+   * reachable through their properties, ahead of the first serialization. Classes are
+   * scanned in parallel, so this is best called once at startup with the root classes
+   * of your responses.
+   *
+   * @param classes The classes to scan
+   * @return The number of classes scanned
+   */
+  public int preload(Class<?>... classes) {
+    JsonWriter writer = new JsonWriter(null, null, JsonView.with(null));
+    Set<Class<?>> scanned = ConcurrentHashMap.newKeySet();
+    List<Class<?>> pending = Stream.of(classes).filter(scanned::add).collect(Collectors.toList());
+    while(!pending.isEmpty()) {
+      pending = pending.parallelStream()
+          .flatMap(cls -> writer.preload(cls).stream())
+          .filter(cls -> isPreloadable(cls) && scanned.add(cls))
+          .collect(Collectors.toList());
+    }
+    return scanned.size();
+  }
+
+  /**
+   * Preload the classes matched by the given views, and evaluate their matchers against
+   * the properties of those classes. Matcher results are cached, so the first request
+   * using the same matchers does not have to compile their patterns. The templates are
+   * frozen, since cached results would go stale if their matchers changed afterwards.
+   *
+   * @param templates Views whose matchers are reused across requests
+   */
+  public void precompile(JsonView<?>... templates) {
+    JsonWriter writer = new JsonWriter(null, null, JsonView.with(null));
+    List<Class<?>> classes = new ArrayList<>();
+    for(JsonView<?> template : templates) {
+      template.freeze();
+      classes.addAll(template.matches.keySet());
+    }
+    preload(classes.toArray(new Class<?>[0]));
+
+    Stream.of(templates).parallel()
+        .flatMap(template -> template.matches.entrySet().stream())
+        .forEach(e -> writer.precompile(e.getKey(), e.getValue()));
+  }
+
+  private static boolean isPreloadable(Class<?> cls) {
+    String name = cls.getName();
+    return !cls.isPrimitive() && !cls.isEnum() && !Modifier.isAbstract(cls.getModifiers()) &&
+        !name.startsWith("java.") && !name.startsWith("javax.") && !name.startsWith("jdk.");
+  }
+
   @Override
   public void serialize(JsonView result, JsonGenerator jgen, SerializationContext serializers) {
-    new JsonWriter(serializers, jgen, result).write(null, result.getValue());
+    if(result instanceof MultiView) {
+      MultiView multi = (MultiView) result;
+      List<JsonGenerator> generators = new ArrayList<>();
+      generators.add(jgen);
+      generators.addAll(multi.generators);
+      serialize(multi.views, generators, serializers);
+      return;
+    } else if(result instanceof PausedView) {
+      PausedView paused = (PausedView) result;
+      paused.view.freeze();
+      JsonWriter writer = new JsonWriter(serializers, jgen, paused.view);
+      paused.traversal = new Traversal(writer.open(null, paused.view.getValue()));
+      return;
+    }
+
+    result.freeze();
+    SerializationProfiler.Sample sample = profiler != null && !(jgen instanceof TokenBuffer || jgen instanceof DeltaGenerator) ? profiler.sample() : null;
+    if(sample != null) {
+      sample.generator = new ProfiledGenerator(jgen);
+      jgen = sample.generator;
+    }
+
+    JsonWriter writer = new JsonWriter(serializers, jgen, result);
+    writer.state.profile = sample;
+    if(traversalMode == TraversalMode.ITERATIVE) {
+      writer.writeIteratively(null, result.getValue());
+    } else {
+      writer.write(null, result.getValue());
+    }
+
+    if(sample != null) {
+      sample.finish();
+    }
+  }
+
+  /**
+   * Write the same value under several views in a single traversal, to one generator per
+   * view. Each property is read once and written to every generator whose view includes
+   * it, so the cost of reading the object graph is shared between the views.
+   *
+   * @param views       The views to write, which must all wrap the same value
+   * @param generators  The generators to write to, in the same order as the views
+   * @param serializers The serialization context
+   */
+  public void serialize(List<? extends JsonView<?>> views, List<JsonGenerator> generators, SerializationContext serializers) {
+    if(views.isEmpty() || views.size() != generators.size()) {
+      throw new IllegalArgumentException("Expected one generator per view, got " + generators.size() + " for " + views.size() + " views");
+    }
+
+    Object value = views.get(0).getValue();
+    SharedReads reads = new SharedReads();
+    List<Frame> frames = new ArrayList<>();
+    for(int i = 0; i < views.size(); i++) {
+      JsonView<?> view = views.get(i);
+      if(view.getValue() != value) {
+        throw new IllegalArgumentException("All views must wrap the same value");
+      }
+      view.freeze();
+
+      JsonWriter writer = new JsonWriter(serializers, generators.get(i), view);
+      writer.state.reads = reads;
+      Frame frame = writer.open(null, value);
+      if(frame != null) {
+        frames.add(frame);
+      }
+    }
+    drainTogether(frames);
+  }
+
+  /**
+   * Steps frames that were opened for the same value one child at a time, so they read
+   * each child together. Children that are containers are grouped by value and stepped
+   * together in turn; a transform can give views different values for the same property.
+   * Views can write a different number of children, such as when they limit a list to
+   * different windows, so each frame is only stepped while it has children left. A group
+   * is ended once none of its frames do.
+   */
+  private void drainTogether(List<Frame> frames) {
+    Deque<List<Frame>> stack = new ArrayDeque<>();
+    if(!frames.isEmpty()) {
+      stack.push(frames);
+    }
+    while(!stack.isEmpty()) {
+      List<Frame> group = stack.peek();
+      Map<Object, List<Frame>> children = new IdentityHashMap<>();
+      boolean stepped = false;
+      for(Frame frame : group) {
+        if(frame.hasNext()) {
+          stepped = true;
+          Frame child = frame.writeNext();
+          if(child != null) {
+            children.computeIfAbsent(child.value, k -> new ArrayList<>()).add(child);
+          }
+        }
+      }
+
+      if(!stepped) {
+        stack.pop();
+        for(Frame frame : group) {
+          frame.writeEnd();
+          frame.writer.close(frame);
+        }
+      } else {
+        children.values().forEach(stack::push);
+      }
+    }
+  }
+
+  /**
+   * A traversal that writes one value, property or container boundary per step, so it
+   * can be paused between steps
+   */
+  class Traversal {
+    private final Deque<Frame> stack = new ArrayDeque<>();
+
+    Traversal(Frame root) {
+      if(root != null) {
+        stack.push(root);
+      }
+    }
+
+    /**
+     * Writes the next step. Returns whether there is anything left to write.
+     */
+    boolean step() {
+      if(stack.isEmpty()) {
+        return false;
+      }
+
+      Frame frame = stack.peek();
+      if(frame.hasNext()) {
+        Frame child = frame.writeNext();
+        if(child != null) {
+          stack.push(child);
+        }
+      } else {
+        frame.writeEnd();
+        frame.writer.close(frame);
+        stack.pop();
+      }
+      return !stack.isEmpty();
+    }
   }
 
   class JsonWriter {
-    Stack<String> path = new Stack<>();
+    Stack<String> path;
     String currentPath = "";
     Match currentMatch = null;
     AccessibleProperty referringField = null;
+    FieldSelection selection;
+    Match.Window window;
 
-    final SerializationContext serializerProvider;
     final JsonGenerator jgen;
-    final JsonView result;
+    final WriterState state;
+    //asynchronous properties of the object this writer opened, started ahead of writing
+    Map<AccessibleProperty, Future<?>> pending;
 
     JsonWriter(SerializationContext serializerProvider, JsonGenerator jgen, JsonView result) {
-      this.serializerProvider = serializerProvider;
       this.jgen = jgen;
-      this.result = result;
+      this.state = new WriterState(serializerProvider, result, referenceTracking ? new ReferenceTracker() : null);
+      this.state.reads = new SharedReads();
+      this.selection = result.getFieldSelection();
+      this.path = new Stack<>();
     }
 
     //internal use only to encapsulate what the current state was
-    private JsonWriter(JsonGenerator jgen, JsonView result, Match currentMatch, SerializationContext serializerProvider) {
-      this.jgen = jgen;
-      this.result = result;
-      this.currentMatch = currentMatch;
-      this.serializerProvider = serializerProvider;
+    private JsonWriter(JsonWriter parent, Stack<String> path, AccessibleProperty referringField) {
+      this(parent, parent.state, parent.jgen, path, referringField);
     }
 
     //internal use only to encapsulate what the current state was
-    private JsonWriter(JsonGenerator jgen, JsonView result, Match currentMatch,
-                       String currentPath, Stack<String> path, AccessibleProperty referringField, SerializationContext serializerProvider) {
+    private JsonWriter(JsonWriter parent, WriterState state, JsonGenerator jgen, Stack<String> path, AccessibleProperty referringField) {
       this.jgen = jgen;
-      this.result = result;
-      this.currentMatch = currentMatch;
-      this.currentPath = currentPath;
-      this.referringField = referringField;
+      this.state = state;
+      this.currentMatch = parent.currentMatch;
+      this.selection = parent.selection;
+      this.currentPath = path == parent.path ? parent.currentPath : null;
       this.path = path;
-      this.serializerProvider = serializerProvider;
+      this.referringField = referringField;
+    }
+
+    /**
+     * Writes values that don't depend on the writer's path or match, so containers can
+     * write them without creating a child writer
+     */
+    boolean writeScalar(Object obj) {
+      return writePrimitive(obj) || writeSpecial(obj) || writeEnum(obj);
     }
 
     boolean writePrimitive(Object obj) {
@@ -192,7 +525,7 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
 
     boolean writeSpecial(Object obj) {
       if(obj instanceof Date) {
-        serializerProvider.defaultSerializeDateValue((Date) obj, jgen);
+        state.serializerProvider.defaultSerializeDateValue((Date) obj, jgen);
       } else if(obj instanceof Temporal) {
         jgen.writePOJO(obj);
       } else if(obj instanceof URL) {
@@ -203,6 +536,8 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
         jgen.writeString(obj.toString());
       } else if(obj instanceof Class) {
         jgen.writeString(((Class) obj).getCanonicalName());
+      } else if(obj instanceof byte[]) {
+        jgen.writeBinary((byte[]) obj);
       } else {
         return false;
       }
@@ -218,30 +553,110 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
       return true;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Writes the value, recursing on the Java stack for nested containers.
+     */
+    void write(String fieldName, Object value) {
+      Frame frame = open(fieldName, value);
+      if(frame != null) {
+        drain(frame);
+      }
+    }
+
+    /**
+     * Writes the value, keeping nested containers on an explicit work stack so
+     * the Java stack depth does not grow with the depth of the object graph.
+     */
+    void writeIteratively(String fieldName, Object value) {
+      Frame frame = open(fieldName, value);
+      if(frame != null) {
+        drainIteratively(frame);
+      }
+    }
+
+    private void drainIteratively(Frame frame) {
+      Deque<Frame> stack = new ArrayDeque<>();
+      stack.push(frame);
+      while(!stack.isEmpty()) {
+        Frame child = stack.peek().next();
+        if(child != null) {
+          stack.push(child);
+        } else {
+          stack.pop();
+        }
+      }
+    }
+
+    private void drain(Frame frame) {
+      Frame child;
+      while((child = frame.next()) != null) {
+        drain(child);
+      }
+    }
+
+    /**
+     * Writes a scalar value directly, or writes the start of a container and returns
+     * the frame that will write its contents.
+     */
+    Frame open(String fieldName, Object value) {
+      //try to handle all primitives/special cases before treating this as json object
+      if(writeScalar(value) || writeReference(value) || writeFragment(fieldName, value)) {
+        return null;
+      }
+      return openContainer(fieldName, value);
+    }
+
+    private Frame openContainer(String fieldName, Object value) {
+      if(fieldName != null) {
+        path.push(fieldName);
+        updateCurrentPath();
+      }
+
+      Frame frame = openList(value);
+      if(frame == null) {
+        frame = openMap(value);
+      }
+      if(frame == null) {
+        frame = openObject(value);
+      }
+      frame.fieldName = fieldName;
+      frame.value = value;
+      return frame;
+    }
+
+    void close(Frame frame) {
+      if(state.profile != null && frame.profilePath != null) {
+        state.profile.wrote(frame.profilePath, state.profile.bytes() - frame.profileBytes);
+      }
+      if(frame.fieldName != null) {
+        path.pop();
+        updateCurrentPath();
+      }
+    }
+
     boolean writeList(Object obj) {
+      Frame frame = openList(obj);
+      if(frame == null) {
+        return false;
+      }
+      drain(frame);
+      return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    Frame openList(Object obj) {
       if(obj instanceof List || obj instanceof Set || obj.getClass().isArray()) {
         Iterable iter;
         if(obj.getClass().isArray()) {
-          if(obj instanceof byte[]) {
-            jgen.writeBinary((byte[]) obj);
-            return true;
-          } else {
-            iter = convertArray(obj);
-          }
+          iter = convertArray(obj);
         } else {
           iter = (Iterable<Object>) obj;
         }
 
         jgen.writeStartArray();
-        for(Object o : iter) {
-          new JsonWriter(jgen, result, currentMatch, currentPath, path, referringField, serializerProvider).write(null, o);
-        }
-        jgen.writeEndArray();
-      } else {
-        return false;
+        return new ArrayFrame(this, window != null ? window.apply(iter) : iter.iterator());
       }
-      return true;
+      return null;
     }
 
     @SuppressWarnings("unchecked")
@@ -296,78 +711,396 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
     }
 
     @SuppressWarnings("unchecked")
-    boolean writeMap(Object obj) {
+    Frame openMap(Object obj) {
       if(obj instanceof Map) {
-        Map<Object, Object> map = (Map<Object, Object>) obj;
-
         jgen.writeStartObject();
-        for(Object key : map.keySet()) {
-          jgen.writeName(key.toString());
-          new JsonWriter(jgen, result, currentMatch, serializerProvider).write(null, map.get(key));
+        return new MapFrame(this, (Map<Object, Object>) obj);
+      }
+      return null;
+    }
+
+    Frame openObject(Object obj) {
+      jgen.writeStartObject();
+      List<AccessibleProperty> properties = getAccessibleProperties(obj.getClass());
+      if(state.references != null) {
+        state.references.enter(obj);
+        writeIdentity(obj, properties);
+      }
+      if(asyncExecutor != null) {
+        startAsync(obj, properties);
+      }
+      return new ObjectFrame(this, obj, properties.iterator());
+    }
+
+    /**
+     * Starts every asynchronous property of the object that the view will write, so they
+     * can all be awaited while writing the object's properties in order
+     */
+    private void startAsync(Object obj, List<AccessibleProperty> properties) {
+      for(AccessibleProperty property : properties) {
+        if(!isAsync(property.type) || !fieldAllowed(property, obj.getClass()) ||
+            (selection != null && !selection.includes(getFieldName(property)))) {
+          continue;
         }
-        jgen.writeEndObject();
-      } else {
+
+        //another view, or another path to the same object, may have started it already
+        Future<?> future = state.reads.started(obj, property);
+        if(future == null) {
+          Object val = read(obj, property);
+          if(val instanceof CompletionStage) {
+            future = ((CompletionStage<?>) val).toCompletableFuture();
+          } else if(val instanceof Future) {
+            future = (Future<?>) val;
+          } else if(val instanceof Supplier) {
+            future = CompletableFuture.supplyAsync((Supplier<?>) val, asyncExecutor);
+          }
+          if(future != null) {
+            state.reads.start(obj, property, future, val instanceof Supplier, asyncTimeout.toNanos());
+          }
+        }
+
+        if(future != null) {
+          if(pending == null) {
+            pending = new HashMap<>();
+          }
+          pending.put(property, future);
+        }
+      }
+    }
+
+    private boolean isAsync(Class type) {
+      return CompletionStage.class.isAssignableFrom(type) || Future.class.isAssignableFrom(type) ||
+          Supplier.class.isAssignableFrom(type);
+    }
+
+    private Object await(AccessibleProperty property, Future<?> future) {
+      try {
+        return future.get(Math.max(0, state.reads.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch(TimeoutException e) {
+        state.reads.cancelOwned();
+        throw new RuntimeException("Timed out waiting for property " + property.name + " of " + property.declaringClass.getName(), e);
+      } catch(ExecutionException e) {
+        if(e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * Writes the cached JSON for a value marked with {@link CacheableFragment}, serializing
+     * and caching it first if it hasn't been seen under the current view and path.
+     */
+    boolean writeFragment(String fieldName, Object value) {
+      // Raw fragments can't be projected into trees or hashed for deltas, so those get the real values
+      if(fragmentCache == null || state.references != null || jgen.getPrettyPrinter() != null || jgen instanceof TokenBuffer
+          || jgen instanceof DeltaGenerator) {
         return false;
       }
+
+      CacheableFragment cacheable = getAnnotation(value.getClass(), CacheableFragment.class);
+      String version = cacheable != null ? cacheable.version() : null;
+      if(version == null && fieldName != null && referringField != null) {
+        version = referringField.fragmentVersion;
+      }
+      if(version == null) {
+        return false;
+      }
+
+      String fragmentPath = fieldName == null ? currentPath() : currentPath().length() > 0 ? currentPath() + "." + fieldName : fieldName;
+      FragmentKey key = new FragmentKey(fragmentIdentity(value, version), state.result, fragmentPath, currentMatch,
+          selection, referringField, state.serializerProvider.getConfig());
+      SerializableString fragment = fragmentCache.get(key);
+      if(fragment == null) {
+        StringWriter out = new StringWriter();
+        try(JsonGenerator capture = jgen.objectWriteContext().createGenerator(out)) {
+          JsonWriter writer = new JsonWriter(this, state.withoutProfile(), capture, path, referringField);
+          writer.window = window;
+          Frame frame = writer.openContainer(fieldName, value);
+          if(traversalMode == TraversalMode.ITERATIVE) {
+            writer.drainIteratively(frame);
+          } else {
+            writer.drain(frame);
+          }
+        }
+        fragment = new SerializedString(out.toString());
+        fragmentCache.put(key, fragment);
+      }
+
+      jgen.writeRawValue(fragment);
       return true;
     }
 
-    @SuppressWarnings("unchecked")
-    void writeObject(Object obj) {
-      jgen.writeStartObject();
+    /**
+     * Returns what a fragment is cached under. Versioned values are cached under their
+     * version together with their id, if their class takes its {@link JsonIdentityInfo} from
+     * a property, or otherwise with the value itself, so that different objects sharing a
+     * version never share JSON.
+     */
+    private Object fragmentIdentity(Object value, String versionProperty) {
+      IdentityKey identity = new IdentityKey(value);
+      if(versionProperty.length() == 0) {
+        return identity;
+      }
 
-      List<AccessibleProperty> fields = getAccessibleProperties(obj.getClass());
+      JsonIdentityInfo identityInfo = getAnnotation(value.getClass(), JsonIdentityInfo.class);
+      String idProperty = identityInfo != null && identityInfo.generator().equals(ObjectIdGenerators.PropertyGenerator.class) ?
+          identityInfo.property() : null;
+      Object version = null;
+      Object id = null;
+      for(AccessibleProperty property : getAccessibleProperties(value.getClass())) {
+        if(property.name.equals(versionProperty)) {
+          version = property.get(value);
+        }
+        if(idProperty != null && getFieldName(property).equals(idProperty)) {
+          id = property.get(value);
+        }
+      }
+      return version == null ? identity : asList(value.getClass(), id != null ? id : identity, version);
+    }
 
-      for(AccessibleProperty property : fields) {
-        try {
-          //if the field has a serializer annotation on it, serialize with it
-          if(fieldAllowed(property, obj.getClass())) {
-            Object val = readField(obj, property);
-            if(!valueAllowed(property, val, obj.getClass())) {
-              continue;
+    /**
+     * Writes the id of an object that has already been written, if reference tracking
+     * is enabled. Fails if the object is currently being written and has no id to
+     * refer to it by.
+     */
+    boolean writeReference(Object obj) {
+      if(state.references == null) {
+        return false;
+      }
+
+      Object id = state.references.idOf(obj);
+      if(id != null) {
+        writeId(id);
+        return true;
+      } else if(state.references.isInProgress(obj)) {
+        state.serializerProvider.reportMappingProblem("Cycle detected: instance of %s at path '%s' refers back to itself",
+            obj.getClass().getName(), currentPath());
+      }
+      return false;
+    }
+
+    /**
+     * Assigns an id to a newly opened object whose class is annotated with {@link JsonIdentityInfo},
+     * writing it as the first property unless the id is one of the object's own properties.
+     */
+    private void writeIdentity(Object obj, List<AccessibleProperty> properties) {
+      JsonIdentityInfo identityInfo = getAnnotation(obj.getClass(), JsonIdentityInfo.class);
+      if(identityInfo == null || identityInfo.generator().equals(ObjectIdGenerators.None.class)) {
+        return;
+      }
+
+      if(identityInfo.generator().equals(ObjectIdGenerators.PropertyGenerator.class)) {
+        for(AccessibleProperty property : properties) {
+          if(getFieldName(property).equals(identityInfo.property())) {
+            state.references.assignId(obj, property.get(obj));
+            return;
+          }
+        }
+        throw new IllegalArgumentException("Id property " + identityInfo.property() + " not found on class " + obj.getClass());
+      }
+
+      Object id = state.references.generatorFor(identityInfo).generateId(obj);
+      state.references.assignId(obj, id);
+      jgen.writeName(identityInfo.property());
+      writeId(id);
+    }
+
+    private void writeId(Object id) {
+      if(!writePrimitive(id) && !writeSpecial(id)) {
+        jgen.writePOJO(id);
+      }
+    }
+
+    /**
+     * Writes a single property of an object. Returns the frame for the property's
+     * value if it is a container that still needs to be written.
+     */
+    @SuppressWarnings("unchecked")
+    Frame writeProperty(Object obj, AccessibleProperty property) {
+      try {
+        //if the field has a serializer annotation on it, serialize with it
+        if(fieldAllowed(property, obj.getClass())) {
+          String name = getFieldName(property);
+          if(selection != null && !selection.includes(name)) {
+            if(state.trace != null) {
+              trace(obj, property, false, "not in field selection");
             }
+            return null;
+          }
 
-            String name = getFieldName(property);
-            jgen.writeName(name);
-
-            ValueSerializer fieldSerializer = annotatedWithJsonSerialize(property);
-            if(fieldSerializer != null) {
-              fieldSerializer.serialize(val, jgen, serializerProvider);
-            } else if(customSerializersMap != null && val != null) {
-              ValueSerializer<Object> serializer = customSerializersMap.get(val.getClass());
-              if(serializer != null) {
-                serializer.serialize(val, jgen, serializerProvider);
-              } else {
-                new JsonWriter(jgen, result, currentMatch, currentPath, path, property, serializerProvider).write(name, val);
-              }
-            } else if(val instanceof JsonNode) {
-              // Let Jackson deal with these, they're special
-              jgen.writePOJO(val);
-            } else {
-              new JsonWriter(jgen, result, currentMatch, currentPath, path, property, serializerProvider).write(name, val);
+          MatchPrefixTuple tuple = getMatchPrefix(obj.getClass());
+          String profilePath = null;
+          long readStart = 0;
+          if(state.profile != null) {
+            profilePath = currentPath().length() > 0 ? currentPath() + "." + name : name;
+            readStart = System.nanoTime();
+          }
+
+          Object val = readField(obj, property, tuple);
+          if(state.profile != null) {
+            state.profile.read(profilePath, System.nanoTime() - readStart);
+          }
+          if(!valueAllowed(property, val, obj.getClass())) {
+            if(state.trace != null) {
+              trace(obj, property, false, "null value not included");
             }
+            return null;
           }
-        } catch(IllegalArgumentException | IllegalAccessException e) {
-          throw new RuntimeException(e);
+          if(state.trace != null) {
+            trace(obj, property, true, explain(property, tuple));
+          }
+
+          if(state.profile != null) {
+            return profileProperty(obj, property, name, val, tuple, profilePath);
+          }
+
+          return writeValue(obj, property, name, val, tuple);
+        } else if(state.trace != null) {
+          trace(obj, property, false, explain(property, getMatchPrefix(obj.getClass())));
+        }
+        return null;
+      } catch(IllegalArgumentException | IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * Writes a property of an object once it has been read and found to be allowed
+     */
+    @SuppressWarnings("unchecked")
+    private Frame writeValue(Object obj, AccessibleProperty property, String name, Object val, MatchPrefixTuple tuple) {
+      Match.Window window = null;
+      if(tuple.match != null && !tuple.match.getWindows().isEmpty()) {
+        window = tuple.match.getWindows().get(tuple.prefix + property.name);
+        if(window != null && window.totalField != null && val != null) {
+          writeTotal(window.totalField, val);
         }
       }
 
-      jgen.writeEndObject();
+      jgen.writeName(name);
+
+      ValueSerializer fieldSerializer = annotatedWithJsonSerialize(property);
+      if(fieldSerializer != null) {
+        fieldSerializer.serialize(val, jgen, state.serializerProvider);
+      } else if(customSerializersMap != null && val != null) {
+        ValueSerializer<Object> serializer = customSerializersMap.get(val.getClass());
+        if(serializer != null) {
+          serializer.serialize(val, jgen, state.serializerProvider);
+        } else {
+          return openProperty(property, name, window, val);
+        }
+      } else if(val instanceof JsonNode) {
+        // Let Jackson deal with these, they're special
+        jgen.writePOJO(val);
+      } else {
+        return openProperty(property, name, window, val);
+      }
+      return null;
+    }
+
+    /**
+     * Writes a property while recording the bytes it takes and the time spent in its
+     * custom serializer, if it has one
+     */
+    private Frame profileProperty(Object obj, AccessibleProperty property, String name, Object val,
+                                  MatchPrefixTuple tuple, String profilePath) {
+      long bytesStart = state.profile.bytes();
+      long serializeStart = System.nanoTime();
+      Frame frame = writeValue(obj, property, name, val, tuple);
+      if(frame != null) {
+        frame.profilePath = profilePath;
+        frame.profileBytes = bytesStart;
+      } else {
+        if(annotatedWithJsonSerialize(property) != null || (customSerializersMap != null && val != null && customSerializersMap.containsKey(val.getClass()))) {
+          state.profile.serialized(profilePath, System.nanoTime() - serializeStart);
+        }
+        state.profile.wrote(profilePath, state.profile.bytes() - bytesStart);
+      }
+      return frame;
+    }
+
+    private void trace(Object obj, AccessibleProperty property, boolean written, String reason) {
+      String name = getFieldName(property);
+      String path = currentPath().length() > 0 ? currentPath() + "." + name : name;
+      state.trace.record(new DecisionTrace.Decision(path, obj.getClass(), getMatchPrefix(obj.getClass()).match, written, reason));
+    }
+
+    /**
+     * Works out which rule decided whether a property is allowed, following the same
+     * logic as {@link #fieldAllowed(AccessibleProperty, Class)} without its caches
+     */
+    private String explain(AccessibleProperty property, MatchPrefixTuple tuple) {
+      if(Modifier.isStatic(property.modifiers)) {
+        return "static";
+      }
+
+      if(tuple.match != null) {
+        String path = tuple.prefix + property.name;
+        String included = matchingPattern(tuple.match.getIncludes(), path, true);
+        String excluded = matchingPattern(tuple.match.getExcludes(), path, false);
+        if(included != null && !included.contains("*")) {
+          return "include \"" + included + "\"";
+        } else if(excluded != null && !excluded.contains("*")) {
+          return "exclude \"" + excluded + "\"";
+        } else if(included != null) {
+          return "include \"" + included + "\"";
+        } else if(excluded != null) {
+          return "exclude \"" + excluded + "\"";
+        }
+      }
+
+      String ignored = ignoreReason(property);
+      if(ignored != null) {
+        return ignored;
+      }
+      return tuple.match != null ? "not matched by any pattern" : "no match for class";
+    }
+
+    private Frame openProperty(AccessibleProperty property, String name, Match.Window window, Object val) {
+      if(writeScalar(val)) {
+        return null;
+      }
+      return propertyWriter(property, name, window).open(name, val);
+    }
+
+    private JsonWriter propertyWriter(AccessibleProperty property, String name, Match.Window window) {
+      JsonWriter writer = new JsonWriter(this, path, property);
+      if(selection != null) {
+        writer.selection = selection.select(name);
+      }
+      writer.window = window;
+      return writer;
+    }
+
+    /**
+     * Writes the number of elements in a windowed field, if it is a collection or array
+     */
+    private void writeTotal(String totalField, Object val) {
+      if(val instanceof Collection) {
+        jgen.writeName(totalField);
+        jgen.writeNumber(((Collection) val).size());
+      } else if(val.getClass().isArray()) {
+        jgen.writeName(totalField);
+        jgen.writeNumber(Array.getLength(val));
+      }
     }
 
     boolean valueAllowed(AccessibleProperty property, Object value, Class cls) {
       Include defaultInclude = Include.ALWAYS;
-      if(serializerProvider.getConfig() != null && serializerProvider.getConfig().getDefaultPropertyInclusion() != null) {
-        defaultInclude = serializerProvider.getConfig().getDefaultPropertyInclusion().getValueInclusion();
+      if(state.serializerProvider.getConfig() != null && state.serializerProvider.getConfig().getDefaultPropertyInclusion() != null) {
+        defaultInclude = state.serializerProvider.getConfig().getDefaultPropertyInclusion().getValueInclusion();
       }
-      JsonInclude jsonInclude = getAnnotation(property, JsonInclude.class);
       JsonInclude classJsonInclude = null;
       if(cls != null) {
         classJsonInclude = getAnnotation(cls, JsonInclude.class);
       }
 
       // Make sure local annotations win over global ones
-      if(jsonInclude != null && jsonInclude.value() == Include.NON_NULL && value == null) {
+      if(property.include == Include.NON_NULL && value == null) {
         return false;
       }
       
@@ -386,17 +1119,25 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
     /**
      * Do a search for *all* matchers for a class. This takes into account all relevant
      * parents in the class hierarchy. If multiple matches are found, the matches will
-     * be unioned together.
+     * be unioned together. The result is cached per class for each set of frozen matches.
      */
-    @SuppressWarnings("unchecked")
     private Optional<Match> classMatchSearch(Class declaringClass) {
-//      return memoizer.classMatches(result, declaringClass, () -> {
+      JsonView view = state.result;
+      if(!view.isFrozen()) {
+        return unionClassMatches(view, declaringClass);
+      }
+      return memoizer.classMatches(view.getMatches(), view.getMatchesFingerprint(), declaringClass,
+          () -> unionClassMatches(view, declaringClass));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Match> unionClassMatches(JsonView view, Class declaringClass) {
       List<Match> matches = new ArrayList<>();
       Stack<Class> classes = new Stack<>();
       classes.push(declaringClass);
       while(!classes.isEmpty()) {
         Class cls = classes.pop();
-        Match match = result.getMatch(cls);
+        Match match = view.getMatch(cls);
 
         if(match != null) {
           matches.add(match);
@@ -418,12 +1159,12 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
           unionMatch.getExcludes().addAll(m.getExcludes());
           unionMatch.getIncludes().addAll(m.getIncludes());
           unionMatch.getTransforms().putAll(m.getTransforms());
+          unionMatch.getWindows().putAll(m.getWindows());
         });
-        return Optional.of(unionMatch);
+        return Optional.of(unionMatch.freeze());
       } else {
         return Optional.empty();
       }
-//      });
     }
 
     @SuppressWarnings("unchecked")
@@ -444,8 +1185,8 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
           currentMatch = match;
         }
 
-        int included = containsMatchingPattern(match.getIncludes(), prefix + name, true);
-        int excluded = containsMatchingPattern(match.getExcludes(), prefix + name, false);
+        int included = containsMatchingPattern(match, prefix + name, true);
+        int excluded = containsMatchingPattern(match, prefix + name, false);
 
         /*
         The logic for this is a little complex. We're dealing with ternary logic to
@@ -470,68 +1211,74 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
     }
 
     MatchPrefixTuple getMatchPrefix(Class declaringClass) {
-      String prefix = currentPath.length() > 0 ? currentPath + "." : "";
-
       // Determine matcher behavior
-      MatcherBehavior currentBehavior = result.matcherBehavior;
+      MatcherBehavior currentBehavior = state.result.matcherBehavior;
       if(currentBehavior == null) {
         currentBehavior = JsonViewSerializer.this.defaultMatcherBehavior;
       }
 
       //search for matching class
       Match match = null;
+      boolean relativeToPath = false;
       if(currentBehavior == CLASS_FIRST) {
         match = classMatchSearch(declaringClass).orElse(null);
         if(match == null) {
           match = currentMatch;
-        } else {
-          prefix = "";
+          relativeToPath = true;
         }
       } else if(currentBehavior == PATH_FIRST) {
         if(currentMatch != null) {
           match = currentMatch;
+          relativeToPath = true;
         } else {
           match = classMatchSearch(declaringClass).orElse(null);
-          prefix = "";
         }
       }
 
+      String prefix = "";
+      if(relativeToPath && match != null && currentPath().length() > 0) {
+        prefix = currentPath() + ".";
+      }
       return new MatchPrefixTuple(match, prefix);
     }
 
     Object readField(Object obj, AccessibleProperty field) throws IllegalAccessException {
-      MatchPrefixTuple tuple = getMatchPrefix(obj.getClass());
-      if(tuple.match != null && tuple.match.getTransforms().containsKey(tuple.prefix + field.name)) {
-        return tuple.match.getTransforms().get(tuple.prefix + field.name).apply(obj, field.get(obj));
-      } else {
-        return field.get(obj);
-      }
+      return readField(obj, field, getMatchPrefix(obj.getClass()));
     }
 
-    void write(String fieldName, Object value) {
-      if(fieldName != null) {
-        path.push(fieldName);
-        updateCurrentPath();
-      }
-
-      //try to handle all primitives/special cases before treating this as json object
-      if(!writePrimitive(value) && !writeSpecial(value) && !writeEnum(value) && !writeList(value) && !writeMap(value)) {
-        writeObject(value);
+    private Object readField(Object obj, AccessibleProperty field, MatchPrefixTuple tuple) throws IllegalAccessException {
+      if(tuple.match != null && tuple.match.getTransforms().containsKey(tuple.prefix + field.name)) {
+        return tuple.match.getTransforms().get(tuple.prefix + field.name).apply(obj, read(obj, field));
+      } else {
+        return read(obj, field);
       }
+    }
 
-      if(fieldName != null) {
-        path.pop();
-        updateCurrentPath();
+    private Object read(Object obj, AccessibleProperty field) {
+      if(pending != null) {
+        Future<?> future = pending.get(field);
+        if(future != null) {
+          return await(field, future);
+        }
       }
+      return state.reads.get(obj, field);
     }
 
     void updateCurrentPath() {
-      StringBuilder builder = new StringBuilder();
-      for(String s : path) {
-        builder.append(".");
-        builder.append(s);
+      //built lazily, most writers never need to know their path
+      currentPath = null;
+    }
+
+    String currentPath() {
+      if(currentPath == null) {
+        StringBuilder builder = new StringBuilder();
+        for(String s : path) {
+          builder.append(".");
+          builder.append(s);
+        }
+        currentPath = builder.length() > 0 ? builder.toString().substring(1) : "";
       }
-      currentPath = builder.length() > 0 ? builder.toString().substring(1) : "";
+      return currentPath;
     }
 
     @SuppressWarnings("unchecked")
@@ -554,6 +1301,16 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
       }
     }
 
+    /**
+     * Returns the result of {@link #containsMatchingPattern(Set, String, boolean)} for the
+     * includes or the excludes of a frozen match. This method is memoized against the
+     * match's precomputed fingerprint, so lookups never hash the pattern sets.
+     */
+    int containsMatchingPattern(Match match, String pattern, boolean includes) {
+      return memoizer.matches(match, pattern, includes, () ->
+          containsMatchingPattern(includes ? match.getIncludes() : match.getExcludes(), pattern, includes));
+    }
+
     /**
      * Returns one of the following values:
      * <pre>
@@ -561,21 +1318,26 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
      *  0: Wildcard-based match
      *  1: Non-wildcard match
      * </pre>
-     * <p>
-     * This method is memoized to speed up execution time
      */
     int containsMatchingPattern(Set<String> values, String pattern, boolean matchPrefix) {
-      return memoizer.matches(values, pattern, matchPrefix, () -> {
-        int match = -1;
-        for(String val : values) {
-          String replaced = val.replaceAll("\\.", "\\\\.").replaceAll("\\*", ".*");
-          if(Pattern.compile(replaced).matcher(pattern).matches() || (matchPrefix && val.startsWith(pattern + "."))) {
-            match = replaced.contains("*") ? 0 : 1;
-            break;
-          }
+      String match = matchingPattern(values, pattern, matchPrefix);
+      if(match == null) {
+        return -1;
+      }
+      return match.contains("*") ? 0 : 1;
+    }
+
+    /**
+     * Returns the first of the values that matches the pattern, or null
+     */
+    String matchingPattern(Set<String> values, String pattern, boolean matchPrefix) {
+      for(String val : values) {
+        String replaced = val.replaceAll("\\.", "\\\\.").replaceAll("\\*", ".*");
+        if(Pattern.compile(replaced).matcher(pattern).matches() || (matchPrefix && val.startsWith(pattern + "."))) {
+          return val;
         }
-        return match;
-      });
+      }
+      return null;
     }
 
     /**
@@ -583,59 +1345,125 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
      * some form of ignore. This method is memoized to speed up execution time
      */
     boolean annotatedWithIgnore(AccessibleProperty f) {
-      return memoizer.annotatedWithIgnore(f, () -> {
-        JsonIgnore jsonIgnore = getAnnotation(f, JsonIgnore.class);
-        JsonIgnoreProperties classIgnoreProperties = getAnnotation(f.declaringClass, JsonIgnoreProperties.class);
-        JsonIgnoreProperties fieldIgnoreProperties = null;
-        boolean backReferenced = false;
-
-        //make sure the referring field didn't specify properties to ignore
-        if(referringField != null) {
-          fieldIgnoreProperties = getAnnotation(referringField, JsonIgnoreProperties.class);
-        }
-
-        //make sure the referring field didn't specify a backreference annotation
-        if(getAnnotation(f, JsonBackReference.class) != null && referringField != null) {
-          for(AccessibleProperty lastField : getAccessibleProperties(referringField.declaringClass)) {
-            JsonManagedReference fieldManagedReference = getAnnotation(lastField, JsonManagedReference.class);
-            if(fieldManagedReference != null && lastField.type.equals(f.declaringClass)) {
-              backReferenced = true;
-              break;
-            }
-          }
+      return memoizer.annotatedWithIgnore(f, () -> ignoreReason(f) != null);
+    }
+
+    /**
+     * Returns the annotation that makes Jackson ignore the provided field, or null if
+     * it is not ignored
+     */
+    private String ignoreReason(AccessibleProperty f) {
+      if(f.ignored) {
+        return "@JsonIgnore";
+      }
+
+      JsonIgnoreProperties classIgnoreProperties = getAnnotation(f.declaringClass, JsonIgnoreProperties.class);
+      if(classIgnoreProperties != null && asList(classIgnoreProperties.value()).contains(f.name)) {
+        return "@JsonIgnoreProperties on " + f.declaringClass.getSimpleName();
+      }
+
+      //make sure the referring field didn't specify properties to ignore
+      if(referringField != null && referringField.ignoredProperties != null) {
+        if(referringField.ignoredProperties.contains(f.name)) {
+          return "@JsonIgnoreProperties on " + referringField.declaringClass.getSimpleName() + "." + referringField.name;
         }
+      }
 
-        return (jsonIgnore != null && jsonIgnore.value()) ||
-            (classIgnoreProperties != null && asList(classIgnoreProperties.value()).contains(f.name)) ||
-            (fieldIgnoreProperties != null && asList(fieldIgnoreProperties.value()).contains(f.name)) ||
-            backReferenced;
-      });
+      //make sure the referring field didn't specify a backreference annotation
+      if(f.backReference && referringField != null) {
+        for(AccessibleProperty lastField : getAccessibleProperties(referringField.declaringClass)) {
+          if(lastField.managedReference && lastField.type.equals(f.declaringClass)) {
+            return "@JsonBackReference";
+          }
+        }
+      }
+      return null;
     }
 
     ValueSerializer annotatedWithJsonSerialize(AccessibleProperty property) {
-      JsonSerialize jsonSerialize = getAnnotation(property, JsonSerialize.class);
-      if(jsonSerialize != null) {
-        if(!jsonSerialize.using().equals(ValueSerializer.None.class)) {
-          try {
-            return jsonSerialize.using().newInstance();
-          } catch(InstantiationException | IllegalAccessException e) {
-            throw new RuntimeException(e);
-          }
+      if(property.serializer != null) {
+        try {
+          return property.serializer.newInstance();
+        } catch(InstantiationException | IllegalAccessException e) {
+          throw new RuntimeException(e);
         }
       }
       return null;
     }
 
+    /**
+     * Resolves the metadata of a class and returns the classes its properties refer to
+     */
+    Set<Class<?>> preload(Class<?> cls) {
+      getAnnotations(cls);
+      Set<Class<?>> referenced = new HashSet<>();
+      for(AccessibleProperty property : getAccessibleProperties(cls)) {
+        Object member = property.member();
+        if(member instanceof Field) {
+          collectClasses(((Field) member).getGenericType(), referenced);
+        } else {
+          collectClasses(((Method) member).getGenericReturnType(), referenced);
+        }
+      }
+      return referenced;
+    }
+
+    private void collectClasses(Type type, Set<Class<?>> classes) {
+      if(type instanceof Class) {
+        Class<?> cls = (Class<?>) type;
+        if(cls.isArray()) {
+          collectClasses(cls.getComponentType(), classes);
+        } else {
+          classes.add(cls);
+        }
+      } else if(type instanceof ParameterizedType) {
+        collectClasses(((ParameterizedType) type).getRawType(), classes);
+        for(Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+          collectClasses(argument, classes);
+        }
+      } else if(type instanceof GenericArrayType) {
+        collectClasses(((GenericArrayType) type).getGenericComponentType(), classes);
+      } else if(type instanceof WildcardType) {
+        for(Type bound : ((WildcardType) type).getUpperBounds()) {
+          collectClasses(bound, classes);
+        }
+      }
+    }
+
+    /**
+     * Evaluates a matcher against the top-level properties of a class, so the results
+     * are memoized before they are needed
+     */
+    void precompile(Class<?> cls, Match match) {
+      for(AccessibleProperty property : getAccessibleProperties(cls)) {
+        containsMatchingPattern(match, property.name, true);
+        containsMatchingPattern(match, property.name, false);
+      }
+    }
+
     private Class<?>[] getInterfaces(Class cls) {
       return cls.getInterfaces();
     }
 
     private List<AccessibleProperty> getAccessibleProperties(Class cls) {
       return memoizer.accessibleProperty(cls, () -> {
+        ModelMetadata generated = generatedMetadata(cls);
+        if(generated != null) {
+          return generated.properties().stream()
+              .map(this::toAccessibleProperty)
+              .collect(Collectors.toList());
+        }
+
+        if(cls.isRecord()) {
+          return getRecordProperties(cls);
+        }
+
         // Gather all fields and methods
         Map<String, AccessibleProperty> accessibleProperties = new LinkedHashMap<>();
         Predicate<Field> shouldProcessField = fieldVisibilityAllowed(cls);
-        Predicate<Method> shouldProcessMethod = getterVisibilityAllowed(cls);
+        Predicate<Method> shouldProcessGetter = getterVisibilityAllowed(cls);
+        Predicate<Method> shouldProcessIsGetter = isGetterVisibilityAllowed(cls);
+        Predicate<Method> shouldProcessMethod = m -> isBooleanGetter(m) ? shouldProcessIsGetter.test(m) : shouldProcessGetter.test(m);
         Predicate<Object> visible = (o) -> {
           if(o instanceof Field) {
             return shouldProcessField.test((Field) o);
@@ -650,30 +1478,130 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
             .map(f -> new AccessibleProperty(f.getName(), f.getAnnotations(), f))
             .forEach(p -> accessibleProperties.put(p.name, p));
         getDeclaredMethods(cls).stream()
-            .filter(m -> m.getName().startsWith("get") && !m.getReturnType().equals(Void.class) && m.getParameters().length == 0)
+            .filter(m -> isGetter(m) || isBooleanGetter(m))
             .map(m -> new AccessibleProperty(getFieldNameFromGetter(m), m.getAnnotations(), m))
             .forEach(p -> {
               AccessibleProperty field = accessibleProperties.get(p.name);
 
+              // Getters starting with "get" win over those starting with "is"
+              if(field != null && isBooleanGetter((Method) p.member()) && field.member() instanceof Method && isGetter((Method) field.member())) {
+                return;
+              }
+
               // Combine annotations from the getter and the field
               if(field != null) {
                 Set<Annotation> annotations = new HashSet<Annotation>(asList(field.annotations));
                 annotations.addAll(asList(p.annotations));
-                p = new AccessibleProperty(p.name, annotations.toArray(new Annotation[0]), p.property);
+                p = new AccessibleProperty(p.name, annotations.toArray(new Annotation[0]), p.member());
               }
 
               // TODO: Makes sure combined annotations are applied to the field when method visibility is disallowed
-              if(shouldProcessMethod.test((Method) p.property)) {
+              if(shouldProcessMethod.test((Method) p.member())) {
                 accessibleProperties.put(p.name, p);
               }
             });
 
         return accessibleProperties.values().stream()
-            .filter(p -> visible.test(p.property))
+            .filter(p -> visible.test(p.member()))
             .collect(Collectors.toList());
       });
     }
 
+    /**
+     * Returns the metadata generated for the class by the annotation processor, or null
+     * if there is none
+     */
+    private ModelMetadata generatedMetadata(Class cls) {
+      if(cls.getClassLoader() == null) {
+        return null;
+      }
+
+      try {
+        Class<?> metadata = Class.forName(cls.getName() + ModelMetadata.SUFFIX, true, cls.getClassLoader());
+        if(!ModelMetadata.class.isAssignableFrom(metadata)) {
+          return null;
+        }
+        return (ModelMetadata) metadata.getDeclaredConstructor().newInstance();
+      } catch(ClassNotFoundException e) {
+        return null;
+      } catch(ReflectiveOperationException e) {
+        throw new RuntimeException("Could not load generated metadata for " + cls, e);
+      }
+    }
+
+    /**
+     * Creates a property from generated metadata. Metadata generated with its annotations
+     * is used as is; older metadata has the annotations of its members read through reflection.
+     */
+    private AccessibleProperty toAccessibleProperty(PropertyMetadata metadata) {
+      if(metadata.getAnnotations() != null) {
+        return new AccessibleProperty(metadata);
+      }
+
+      Object member = metadata.getMember().resolve();
+      Set<Annotation> annotations = new HashSet<>(asList(annotationsOf(member)));
+      for(PropertyMetadata.Member source : metadata.getAnnotationSources()) {
+        annotations.addAll(asList(annotationsOf(source.resolve())));
+      }
+      return new AccessibleProperty(metadata.getName(), annotations.toArray(new Annotation[0]), member, metadata.getAccessor());
+    }
+
+    private Annotation[] annotationsOf(Object member) {
+      return member instanceof Field ? ((Field) member).getAnnotations() : ((Method) member).getAnnotations();
+    }
+
+    /**
+     * Returns the components of a record in declaration order. Components are read through
+     * their canonical accessors, and carry the annotations of both the accessor and the field.
+     */
+    private List<AccessibleProperty> getRecordProperties(Class<?> cls) {
+      List<AccessibleProperty> properties = new ArrayList<>();
+      for(RecordComponent component : cls.getRecordComponents()) {
+        Method accessor = component.getAccessor();
+        Set<Annotation> annotations = new HashSet<>(asList(accessor.getAnnotations()));
+        try {
+          annotations.addAll(asList(cls.getDeclaredField(component.getName()).getAnnotations()));
+        } catch(NoSuchFieldException e) {
+          throw new RuntimeException(e);
+        }
+        properties.add(new AccessibleProperty(component.getName(), annotations.toArray(new Annotation[0]), accessor, invoker(accessor)));
+      }
+      return properties;
+    }
+
+    /**
+     * Returns a function that calls the no-argument method through a method handle. Fails
+     * if the method cannot be made accessible, rather than on the first read.
+     */
+    private Function<Object, Object> invoker(Method method) {
+      MethodHandle handle;
+      try {
+        method.trySetAccessible();
+        handle = MethodHandles.lookup().unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+      } catch(IllegalAccessException e) {
+        throw new RuntimeException("Cannot read " + method + ", its package is not open to json-view", e);
+      }
+
+      return obj -> {
+        try {
+          return (Object) handle.invokeExact(obj);
+        } catch(RuntimeException | Error e) {
+          throw e;
+        } catch(Throwable e) {
+          throw new RuntimeException(e);
+        }
+      };
+    }
+
+    private boolean isGetter(Method m) {
+      return m.getName().startsWith("get") && !m.getReturnType().equals(Void.class) && m.getParameters().length == 0;
+    }
+
+    private boolean isBooleanGetter(Method m) {
+      return m.getName().startsWith("is") && m.getName().length() > 2 && m.getParameters().length == 0 &&
+          (m.getReturnType().equals(boolean.class) || m.getReturnType().equals(Boolean.class));
+    }
+
     private List<Field> getDeclaredFields(Class cls) {
       List<Field> fields = new ArrayList<>();
       Stack<Class> parents = new Stack<>();
@@ -733,18 +1661,6 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
       return null;
     }
 
-    @SuppressWarnings("unchecked")
-    private <T extends Annotation> T getAnnotation(AccessibleProperty property, Class<T> annotation) {
-      if(property.annotations != null) {
-        for(Annotation a : property.annotations) {
-          if(a.annotationType().equals(annotation)) {
-            return (T) a;
-          }
-        }
-      }
-      return null;
-    }
-
     private Predicate<Field> fieldVisibilityAllowed(Class cls) {
       JsonAutoDetect autoDetect = getAnnotation(cls, JsonAutoDetect.class);
 
@@ -771,11 +1687,19 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
 
     private Predicate<Method> getterVisibilityAllowed(Class cls) {
       JsonAutoDetect autoDetect = getAnnotation(cls, JsonAutoDetect.class);
+      return methodVisibilityAllowed(autoDetect == null ? null : autoDetect.getterVisibility());
+    }
+
+    private Predicate<Method> isGetterVisibilityAllowed(Class cls) {
+      JsonAutoDetect autoDetect = getAnnotation(cls, JsonAutoDetect.class);
+      return methodVisibilityAllowed(autoDetect == null ? null : autoDetect.isGetterVisibility());
+    }
 
-      if(autoDetect == null) {
+    private Predicate<Method> methodVisibilityAllowed(JsonAutoDetect.Visibility visibility) {
+      if(visibility == null) {
         return m -> true;
       } else {
-        switch(autoDetect.getterVisibility()) {
+        switch(visibility) {
           case DEFAULT:
           case ANY:
             return m -> true;
@@ -788,30 +1712,267 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
           case NONE:
             return m -> false;
           default:
-            throw new RuntimeException("No support for field visibility " + autoDetect.fieldVisibility());
+            throw new RuntimeException("No support for getter visibility " + visibility);
         }
       }
     }
 
     private String getFieldName(AccessibleProperty property) {
-      JsonProperty jsonProperty = getAnnotation(property, JsonProperty.class);
-      if(jsonProperty != null && jsonProperty.value().length() > 0) {
-        return jsonProperty.value();
-      } else {
-        return property.name;
-      }
+      return property.jsonName != null ? property.jsonName : property.name;
     }
 
     private String getFieldNameFromGetter(Method method) {
       if (method.getName().equals("get")) {
     	  return method.getName();
       }
-      String name = method.getName().replaceFirst("get", "");
+      String name = isBooleanGetter(method) ? method.getName().substring(2) : method.getName().replaceFirst("get", "");
       return name.substring(0, 1).toLowerCase() + name.substring(1);
     }
 
   }
 
+  /**
+   * A container (array, map or object) whose start has been written but whose
+   * contents have not yet all been written.
+   */
+  abstract class Frame {
+    final JsonWriter writer;
+    //path element pushed when this container was opened, popped when closed
+    String fieldName;
+    Object value;
+    //path and byte count to attribute the container's output to when profiling
+    String profilePath;
+    long profileBytes;
+
+    Frame(JsonWriter writer) {
+      this.writer = writer;
+    }
+
+    /**
+     * Writes children of this container until one of them is itself a container,
+     * in which case its frame is returned. Once all children are written, the
+     * container is closed and null is returned.
+     */
+    Frame next() {
+      while(hasNext()) {
+        Frame child = writeNext();
+        if(child != null) {
+          return child;
+        }
+      }
+      writeEnd();
+      writer.close(this);
+      return null;
+    }
+
+    abstract boolean hasNext();
+
+    abstract Frame writeNext();
+
+    abstract void writeEnd();
+  }
+
+  class ArrayFrame extends Frame {
+    private final Iterator<?> iter;
+
+    ArrayFrame(JsonWriter writer, Iterator<?> iter) {
+      super(writer);
+      this.iter = iter;
+    }
+
+    @Override
+    boolean hasNext() {
+      return iter.hasNext();
+    }
+
+    @Override
+    Frame writeNext() {
+      Object value = iter.next();
+      if(writer.writeScalar(value)) {
+        return null;
+      }
+      return new JsonWriter(writer, writer.path, writer.referringField).open(null, value);
+    }
+
+    @Override
+    void writeEnd() {
+      writer.jgen.writeEndArray();
+    }
+  }
+
+  class MapFrame extends Frame {
+    private final Map<Object, Object> map;
+    private final Iterator<Object> keys;
+    //values are written with an empty path; entries are written one at a time, so they share it
+    private final Stack<String> path = new Stack<>();
+
+    MapFrame(JsonWriter writer, Map<Object, Object> map) {
+      super(writer);
+      this.map = map;
+      this.keys = map.keySet().iterator();
+    }
+
+    @Override
+    boolean hasNext() {
+      return keys.hasNext();
+    }
+
+    @Override
+    Frame writeNext() {
+      Object key = keys.next();
+      writer.jgen.writeName(key.toString());
+      Object value = map.get(key);
+      if(writer.writeScalar(value)) {
+        return null;
+      }
+      return new JsonWriter(writer, path, null).open(null, value);
+    }
+
+    @Override
+    void writeEnd() {
+      writer.jgen.writeEndObject();
+    }
+  }
+
+  class ObjectFrame extends Frame {
+    private final Object obj;
+    private final Iterator<AccessibleProperty> properties;
+
+    ObjectFrame(JsonWriter writer, Object obj, Iterator<AccessibleProperty> properties) {
+      super(writer);
+      this.obj = obj;
+      this.properties = properties;
+    }
+
+    @Override
+    boolean hasNext() {
+      return properties.hasNext();
+    }
+
+    @Override
+    Frame writeNext() {
+      return writer.writeProperty(obj, properties.next());
+    }
+
+    @Override
+    void writeEnd() {
+      writer.jgen.writeEndObject();
+      if(writer.state.references != null) {
+        writer.state.references.exit(obj);
+      }
+    }
+  }
+
+  /**
+   * State shared by every writer of a single serialization. Child writers hold a reference
+   * to it rather than copying it, so creating them stays cheap.
+   */
+  static class WriterState {
+    final SerializationContext serializerProvider;
+    final JsonView result;
+    final ReferenceTracker references;
+    final DecisionTrace trace;
+    SharedReads reads;
+    SerializationProfiler.Sample profile;
+
+    WriterState(SerializationContext serializerProvider, JsonView result, ReferenceTracker references) {
+      this.serializerProvider = serializerProvider;
+      this.result = result;
+      this.references = references;
+      this.trace = result.getTrace();
+    }
+
+    /**
+     * Returns this state without a profiling sample, for output that isn't written to the
+     * profiled generator
+     */
+    WriterState withoutProfile() {
+      if(profile == null) {
+        return this;
+      }
+      WriterState copy = new WriterState(serializerProvider, result, references);
+      copy.reads = reads;
+      return copy;
+    }
+  }
+
+  private static class IdentityKey {
+    private final Object value;
+
+    IdentityKey(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof IdentityKey && ((IdentityKey) o).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(value);
+    }
+  }
+
+  /**
+   * Everything that can change the JSON written for a cacheable fragment. The view is
+   * reduced to its frozen matches, behavior and selection, since holding on to the view
+   * would keep the value it wraps in the cache too.
+   */
+  private static class FragmentKey {
+    private final Object identity;
+    private final Map<Class<?>, Match> matches;
+    private final int matchesFingerprint;
+    private final MatcherBehavior matcherBehavior;
+    private final FieldSelection viewSelection;
+    private final String path;
+    private final Match currentMatch;
+    private final FieldSelection selection;
+    private final AccessibleProperty referringField;
+    private final Object config;
+    private final int hashCode;
+
+    FragmentKey(Object identity, JsonView view, String path, Match currentMatch, FieldSelection selection,
+                AccessibleProperty referringField, Object config) {
+      view.freeze();
+      this.identity = identity;
+      this.matches = view.getMatches();
+      this.matchesFingerprint = view.getMatchesFingerprint();
+      this.matcherBehavior = view.matcherBehavior;
+      this.viewSelection = view.getFieldSelection();
+      this.path = path;
+      this.currentMatch = currentMatch;
+      this.selection = selection;
+      this.referringField = referringField;
+      this.config = config;
+      this.hashCode = Objects.hash(identity, matchesFingerprint, matcherBehavior, viewSelection, path, currentMatch, selection,
+          referringField, System.identityHashCode(config));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      FragmentKey that = (FragmentKey) o;
+      return hashCode == that.hashCode &&
+          config == that.config &&
+          matchesFingerprint == that.matchesFingerprint &&
+          matcherBehavior == that.matcherBehavior &&
+          Objects.equals(identity, that.identity) &&
+          Objects.equals(path, that.path) &&
+          Objects.equals(referringField, that.referringField) &&
+          Objects.equals(currentMatch, that.currentMatch) &&
+          Objects.equals(selection, that.selection) &&
+          Objects.equals(viewSelection, that.viewSelection) &&
+          (matches == that.matches || matches.equals(that.matches));
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
   private static class MatchPrefixTuple {
     private final Match match;
     private final String prefix;
@@ -828,27 +1989,109 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
     public final Class type;
     public final Annotation[] annotations;
     public final int modifiers;
-    public final Object property;
+    //annotations that affect serialization, read once from the members or from generated metadata
+    final String jsonName;
+    final boolean ignored;
+    final Include include;
+    final Class<? extends ValueSerializer> serializer;
+    final boolean backReference;
+    final boolean managedReference;
+    final List<String> ignoredProperties;
+    final String fragmentVersion;
+    //the member generated metadata refers to, resolved only if it has to be reflected on
+    private final PropertyMetadata.Member member;
+    private volatile Object property;
+    private volatile boolean accessible;
     private final Function<Object, Object> getter;
 
     public AccessibleProperty(String name, Annotation[] annotations, Object property) {
+      this(name, annotations, property, null);
+    }
+
+    public AccessibleProperty(String name, Annotation[] annotations, Object property, Function<Object, Object> accessor) {
       this.name = name;
       this.annotations = annotations;
       this.property = property;
+      this.member = null;
 
       if(property instanceof Field) {
         this.declaringClass = ((Field) property).getDeclaringClass();
         this.type = ((Field) property).getType();
         this.modifiers = ((Field) property).getModifiers();
-        this.getter = this::getFromField;
+        this.getter = accessor != null ? accessor : this::getFromField;
       } else if(property instanceof Method) {
         this.declaringClass = ((Method) property).getDeclaringClass();
         this.type = ((Method) property).getReturnType();
         this.modifiers = ((Method) property).getModifiers();
-        this.getter = this::getFromMethod;
+        this.getter = accessor != null ? accessor : this::getFromMethod;
       } else {
         throw new RuntimeException("Unable to access property from " + property);
       }
+
+      JsonProperty jsonProperty = find(annotations, JsonProperty.class);
+      JsonIgnore jsonIgnore = find(annotations, JsonIgnore.class);
+      JsonInclude jsonInclude = find(annotations, JsonInclude.class);
+      JsonSerialize jsonSerialize = find(annotations, JsonSerialize.class);
+      JsonIgnoreProperties ignoreProperties = find(annotations, JsonIgnoreProperties.class);
+      CacheableFragment cacheable = find(annotations, CacheableFragment.class);
+      this.jsonName = jsonProperty != null && jsonProperty.value().length() > 0 ? jsonProperty.value() : null;
+      this.ignored = jsonIgnore != null && jsonIgnore.value();
+      this.include = jsonInclude != null ? jsonInclude.value() : null;
+      this.serializer = jsonSerialize != null && !jsonSerialize.using().equals(ValueSerializer.None.class) ? jsonSerialize.using() : null;
+      this.backReference = find(annotations, JsonBackReference.class) != null;
+      this.managedReference = find(annotations, JsonManagedReference.class) != null;
+      this.ignoredProperties = ignoreProperties != null ? asList(ignoreProperties.value()) : null;
+      this.fragmentVersion = cacheable != null ? cacheable.version() : null;
+    }
+
+    /**
+     * Creates a property from metadata generated with its type, modifiers and annotations,
+     * without reflecting over its members
+     */
+    AccessibleProperty(PropertyMetadata metadata) {
+      PropertyMetadata.Annotations generated = metadata.getAnnotations();
+      this.name = metadata.getName();
+      this.annotations = null;
+      this.member = metadata.getMember();
+      this.declaringClass = member.getDeclaringClass();
+      this.type = metadata.getType();
+      this.modifiers = metadata.getModifiers();
+      if(metadata.getAccessor() != null) {
+        this.getter = metadata.getAccessor();
+      } else {
+        this.getter = member.isMethod() ? this::getFromMethod : this::getFromField;
+      }
+
+      this.jsonName = generated.getName() != null && generated.getName().length() > 0 ? generated.getName() : null;
+      this.ignored = generated.isIgnored();
+      this.include = generated.getInclude();
+      this.serializer = generated.getSerializer();
+      this.backReference = generated.isBackReference();
+      this.managedReference = generated.isManagedReference();
+      this.ignoredProperties = generated.getIgnoredProperties();
+      this.fragmentVersion = generated.getFragmentVersion();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Annotation> T find(Annotation[] annotations, Class<T> type) {
+      if(annotations != null) {
+        for(Annotation a : annotations) {
+          if(a.annotationType().equals(type)) {
+            return (T) a;
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns the {@link Field} or {@link Method} the property is read from
+     */
+    Object member() {
+      if(property == null) {
+        property = member.resolve();
+      }
+      return property;
     }
 
     public Object get(Object obj) {
@@ -857,8 +2100,7 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
 
     private Object getFromField(Object obj) {
       try {
-        ((Field) property).setAccessible(true);
-        return ((Field) property).get(obj);
+        return accessible((Field) member(), obj).get(obj);
       } catch(IllegalAccessException e) {
         throw new RuntimeException(e);
       }
@@ -866,13 +2108,27 @@ public class JsonViewSerializer extends ValueSerializer<JsonView> {
 
     private Object getFromMethod(Object obj) {
       try {
-        ((Method) property).setAccessible(true);
-        return ((Method) property).invoke(obj);
+        return accessible((Method) member(), obj).invoke(obj);
       } catch(IllegalAccessException | InvocationTargetException e) {
         throw new RuntimeException(e);
       }
     }
 
+    /**
+     * Makes the member accessible on the first read. Members that cannot be made accessible,
+     * such as those in packages not open to json-view, are only read if they are public.
+     */
+    private <T extends AccessibleObject> T accessible(T member, Object obj) {
+      if(!accessible) {
+        if(!member.trySetAccessible() && !member.canAccess(Modifier.isStatic(modifiers) ? null : obj)) {
+          throw new RuntimeException("Cannot read property '" + name + "' of " + declaringClass.getName() +
+              ", its package is not open to json-view");
+        }
+        accessible = true;
+      }
+      return member;
+    }
+
     @Override
     public boolean equals(Object o) {
       if(this == o) return true;
@@ -0,0 +1,106 @@
+package com.monitorjbl.json;
+
+import java.util.Map;
+
+/**
+ * Compact record of a previously serialized view, used to compute a {@link JsonViewDelta}.
+ * Only a 64-bit hash is kept per object property; arrays and scalar values are reduced to a
+ * single hash, so a snapshot is much smaller than the JSON it describes. Object hashes do not
+ * depend on the order of the properties, so a map that iterates in a different order is not
+ * reported as changed.
+ * <p>
+ * Snapshots are taken while the view is being written, one value at a time, without
+ * building the JSON as a tree.
+ * <p>
+ * Snapshots are immutable and can be kept per client between updates.
+ */
+public final class JsonViewSnapshot {
+  static final long OBJECT_SEED = 0x6f626a656374L;
+  static final long ARRAY_SEED = 0x6172726179L;
+  private static final long STRING_SEED = 0x737472696e67L;
+  private static final long NUMBER_SEED = 0x6e756d626572L;
+  private static final long BINARY_SEED = 0x62696e617279L;
+  static final long TRUE = 0x74727565L;
+  static final long FALSE = 0x66616c7365L;
+  static final long NULL = 0x6e756c6cL;
+
+  final long hash;
+  final Map<String, JsonViewSnapshot> fields;
+
+  JsonViewSnapshot(long hash, Map<String, JsonViewSnapshot> fields) {
+    this.hash = hash;
+    this.fields = fields;
+  }
+
+  /**
+   * Returns whether this snapshot describes a JSON object, whose properties are tracked
+   * individually.
+   *
+   * @return boolean
+   */
+  boolean isObject() {
+    return fields != null;
+  }
+
+  static long hash(CharSequence value) {
+    return fnv(0xcbf29ce484222325L, value);
+  }
+
+  static long hashString(CharSequence value) {
+    return mix(STRING_SEED, hash(value));
+  }
+
+  static long hashNumber(long value) {
+    return mix(NUMBER_SEED, value);
+  }
+
+  /**
+   * Hashes a number that does not fit a long, by its JSON text
+   */
+  static long hashNumber(String text) {
+    return mix(NUMBER_SEED, mix(NUMBER_SEED, hash(text)));
+  }
+
+  static long hashNumber(double value) {
+    return value == (long) value ? hashNumber((long) value) : mix(NUMBER_SEED, Double.doubleToLongBits(value));
+  }
+
+  static long hashBinary(byte[] data, int offset, int len) {
+    // 64-bit FNV-1a
+    long hash = 0xcbf29ce484222325L;
+    for(int i = offset; i < offset + len; i++) {
+      hash ^= data[i] & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return mix(BINARY_SEED, hash);
+  }
+
+  private static long fnv(long hash, CharSequence value) {
+    // 64-bit FNV-1a
+    for(int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  static long mix(long hash, long value) {
+    long h = hash * 0x9e3779b97f4a7c15L + value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if(this == o) return true;
+    if(o == null || getClass() != o.getClass()) return false;
+    return hash == ((JsonViewSnapshot) o).hash;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash);
+  }
+}
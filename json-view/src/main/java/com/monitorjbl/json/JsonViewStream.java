@@ -0,0 +1,77 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectWriter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes a {@link JsonView} on demand, in chunks sized by the caller. Between chunks
+ * the traversal is paused, so a slow or non-blocking consumer can take the JSON at its own
+ * pace without the whole payload being buffered or a thread being parked.
+ * <p>
+ * Instances are not thread-safe, though successive chunks may be pulled from different
+ * threads. Use {@link JsonViewWriter#stream(JsonView)} to create one, and close it when
+ * done.
+ */
+public class JsonViewStream implements AutoCloseable {
+  private final ByteBufferOutputStream pending;
+  private final JsonGenerator jgen;
+  private final JsonViewSerializer.Traversal traversal;
+  private boolean traversed = false;
+
+  JsonViewStream(ObjectWriter writer, JsonView<?> view, int initialBufferSize) {
+    this.pending = ByteBufferOutputStream.growable(initialBufferSize, false);
+    this.jgen = writer.createGenerator(pending);
+
+    PausedView paused = new PausedView(view);
+    writer.writeValue(jgen, paused);
+    this.traversal = paused.traversal;
+  }
+
+  /**
+   * Write the next chunk of JSON into the buffer, starting at its current position, until
+   * the buffer is full or the JSON is complete. The position is advanced past the written
+   * bytes.
+   *
+   * @param buffer The buffer to write to
+   * @return The number of bytes written
+   */
+  public int nextChunk(ByteBuffer buffer) {
+    int written = drainPending(buffer);
+    while(buffer.hasRemaining() && !traversed) {
+      traversed = !traversal.step();
+      if(traversed || pending.buffer().position() + jgen.streamWriteOutputBuffered() >= buffer.remaining()) {
+        jgen.flush();
+        written += drainPending(buffer);
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Returns whether all of the JSON has been handed out
+   *
+   * @return boolean
+   */
+  public boolean isDone() {
+    return traversed && pending.buffer().position() == 0;
+  }
+
+  private int drainPending(ByteBuffer buffer) {
+    ByteBuffer bytes = pending.buffer();
+    bytes.flip();
+    int length = Math.min(bytes.remaining(), buffer.remaining());
+    int limit = bytes.limit();
+    bytes.limit(bytes.position() + length);
+    buffer.put(bytes);
+    bytes.limit(limit);
+    bytes.compact();
+    return length;
+  }
+
+  @Override
+  public void close() {
+    jgen.close();
+  }
+}
@@ -0,0 +1,396 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.Base64Variants;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.util.TokenBuffer;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes {@link JsonView} objects straight into streams and buffers, without producing an
+ * intermediate {@code String} or {@code byte[]}. Generators are created from the mapper's
+ * factory, so their encoding buffers are recycled by Jackson's buffer pool.
+ * <p>
+ * Instances are thread-safe and should be reused. Use {@link JsonViewSerializer#writer(ObjectMapper)}
+ * to create one.
+ */
+public class JsonViewWriter {
+  private final ObjectMapper mapper;
+  private final ObjectWriter writer;
+  private final ObjectWriter linesWriter;
+  private final Queue<ByteBufferOutputStream> pool = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  private int initialBufferSize = 8192;
+  private int maxPooledBuffers = 16;
+  private boolean directBuffers = false;
+
+  JsonViewWriter(ObjectMapper mapper, JsonViewSerializer serializer) {
+    this.mapper = mapper.rebuild()
+        .addModule(new JsonViewModule(serializer))
+        .build();
+    this.writer = this.mapper.writer()
+        .without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+    this.linesWriter = writer
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .withRootValueSeparator((String) null);
+  }
+
+  /**
+   * Set the capacity of newly allocated pooled buffers. Buffers grow beyond this as needed.
+   *
+   * @param initialBufferSize Capacity in bytes
+   * @return JsonViewWriter
+   */
+  public JsonViewWriter withInitialBufferSize(int initialBufferSize) {
+    this.initialBufferSize = initialBufferSize;
+    return this;
+  }
+
+  /**
+   * Set how many idle buffers are kept for reuse.
+   *
+   * @param maxPooledBuffers Maximum number of idle buffers
+   * @return JsonViewWriter
+   */
+  public JsonViewWriter withMaxPooledBuffers(int maxPooledBuffers) {
+    this.maxPooledBuffers = maxPooledBuffers;
+    return this;
+  }
+
+  /**
+   * Set whether pooled buffers are allocated outside of the heap.
+   *
+   * @param directBuffers Whether to use direct buffers
+   * @return JsonViewWriter
+   */
+  public JsonViewWriter withDirectBuffers(boolean directBuffers) {
+    this.directBuffers = directBuffers;
+    return this;
+  }
+
+  /**
+   * Write the view to the stream. The stream is flushed but not closed.
+   *
+   * @param view The view to write
+   * @param out  The stream to write to
+   */
+  public void write(JsonView<?> view, OutputStream out) {
+    try(JsonGenerator jgen = writer.createGenerator(out)) {
+      writer.writeValue(jgen, view);
+    }
+  }
+
+  /**
+   * Write a view of a collection as JSON Lines: each element is written on its own line,
+   * under the view's matches, followed by a newline. The stream is flushed after every
+   * line but not closed. The view may wrap an {@code Iterable}, {@code Stream},
+   * {@code Iterator} or object array; streams are consumed lazily and closed when done,
+   * so only one element needs to be held at a time.
+   *
+   * @param view The view to write
+   * @param out  The stream to write to
+   * @throws IllegalArgumentException if the view does not wrap a collection
+   */
+  public void writeLines(JsonView<?> view, OutputStream out) {
+    Object value = view.getValue();
+    try(JsonGenerator jgen = linesWriter.createGenerator(out)) {
+      Iterator<?> elements = elements(value);
+      while(elements.hasNext()) {
+        linesWriter.writeValue(jgen, view.withValue(elements.next()));
+        jgen.writeRaw('\n');
+        jgen.flush();
+      }
+    } finally {
+      if(value instanceof Stream) {
+        ((Stream<?>) value).close();
+      }
+    }
+  }
+
+  private static Iterator<?> elements(Object value) {
+    if(value instanceof Iterable) {
+      return ((Iterable<?>) value).iterator();
+    } else if(value instanceof Stream) {
+      return ((Stream<?>) value).iterator();
+    } else if(value instanceof Iterator) {
+      return (Iterator<?>) value;
+    } else if(value instanceof Object[]) {
+      return Arrays.asList((Object[]) value).iterator();
+    }
+    throw new IllegalArgumentException("JSON Lines can only be written for collections, not " +
+        (value == null ? "null" : value.getClass().getName()));
+  }
+
+  /**
+   * Write several views of the same value, each to its own stream, in a single traversal.
+   * Properties are read once and written to every stream whose view includes them. The
+   * streams are flushed but not closed.
+   *
+   * @param views The views to write, which must all wrap the same value
+   * @param outs  The streams to write to, in the same order as the views
+   */
+  public void write(List<? extends JsonView<?>> views, List<? extends OutputStream> outs) {
+    if(views.isEmpty() || views.size() != outs.size()) {
+      throw new IllegalArgumentException("Expected one stream per view, got " + outs.size() + " for " + views.size() + " views");
+    }
+
+    List<JsonGenerator> generators = new ArrayList<>();
+    try {
+      for(OutputStream out : outs.subList(1, outs.size())) {
+        generators.add(writer.createGenerator(out));
+      }
+      write(new MultiView(views, generators), outs.get(0));
+    } finally {
+      generators.forEach(JsonGenerator::close);
+    }
+  }
+
+  /**
+   * Create an exporter that writes collections of views to files with the same settings
+   * as this writer.
+   *
+   * @return JsonViewExporter
+   */
+  public JsonViewExporter exporter() {
+    return new JsonViewExporter(writer);
+  }
+
+  /**
+   * Open the view for serialization in chunks. The view is only traversed as far as the
+   * chunks requested so far require.
+   *
+   * @param view The view to write
+   * @return JsonViewStream
+   */
+  public JsonViewStream stream(JsonView<?> view) {
+    return new JsonViewStream(writer, view, initialBufferSize);
+  }
+
+  /**
+   * Write the view into the buffer, starting at its current position. On success, the
+   * position is advanced past the written JSON. If the buffer is too small, a
+   * {@link java.nio.BufferOverflowException} is thrown and the position is left unchanged.
+   *
+   * @param view   The view to write
+   * @param buffer The buffer to write to
+   */
+  public void write(JsonView<?> view, ByteBuffer buffer) {
+    int start = buffer.position();
+    try {
+      write(view, new ByteBufferOutputStream(buffer));
+    } catch(RuntimeException e) {
+      buffer.position(start);
+      throw e;
+    }
+  }
+
+  /**
+   * Write the view into a buffer borrowed from this writer's pool. The returned buffer
+   * must be closed once its contents have been consumed, so it can be reused.
+   *
+   * @param view The view to write
+   * @return PooledBuffer
+   */
+  public PooledBuffer writeToPooledBuffer(JsonView<?> view) {
+    ByteBufferOutputStream out = pool.poll();
+    if(out == null) {
+      out = ByteBufferOutputStream.growable(initialBufferSize, directBuffers);
+    } else {
+      pooled.decrementAndGet();
+    }
+
+    try {
+      write(view, out);
+    } catch(RuntimeException e) {
+      release(out);
+      throw e;
+    }
+    return new PooledBuffer(out);
+  }
+
+  /**
+   * Project the view into a tree, applying the same matches, transforms and serializers as
+   * when writing JSON, but without producing any text.
+   *
+   * @param view The view to project
+   * @return JsonNode
+   */
+  public JsonNode toTree(JsonView<?> view) {
+    return mapper.valueToTree(view);
+  }
+
+  /**
+   * Project the view into unmodifiable maps and lists, holding the same values that parsing
+   * its JSON with default settings would produce, but without producing any text. Objects become maps that keep
+   * the order of their properties.
+   *
+   * @param view The view to project
+   * @return A {@code Map}, {@code List}, {@code String}, {@code Number}, {@code Boolean} or null
+   */
+  public Object toValue(JsonView<?> view) {
+    try(TokenBuffer buffer = TokenBuffer.forGeneration(); JsonParser parser = tokens(buffer, view)) {
+      parser.nextToken();
+      return readValue(parser);
+    }
+  }
+
+  /**
+   * Project a view of an object into an unmodifiable map. See {@link #toValue(JsonView)}.
+   *
+   * @param view The view to project
+   * @return Map
+   * @throws IllegalArgumentException if the view does not serialize to a JSON object
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> toMap(JsonView<?> view) {
+    Object value = toValue(view);
+    if(!(value instanceof Map)) {
+      throw new IllegalArgumentException("View does not serialize to a JSON object");
+    }
+    return (Map<String, Object>) value;
+  }
+
+  private JsonParser tokens(TokenBuffer buffer, JsonView<?> view) {
+    writer.writeValue(buffer, view);
+    return buffer.asParser();
+  }
+
+  private Object readValue(JsonParser parser) {
+    JsonToken token = parser.currentToken();
+    switch(token) {
+      case START_OBJECT:
+        Map<String, Object> map = new LinkedHashMap<>();
+        while(parser.nextToken() == JsonToken.PROPERTY_NAME) {
+          String name = parser.currentName();
+          parser.nextToken();
+          map.put(name, readValue(parser));
+        }
+        return Collections.unmodifiableMap(map);
+      case START_ARRAY:
+        List<Object> list = new ArrayList<>();
+        while(parser.nextToken() != JsonToken.END_ARRAY) {
+          list.add(readValue(parser));
+        }
+        return Collections.unmodifiableList(list);
+      case VALUE_STRING:
+        return parser.getString();
+      case VALUE_NUMBER_INT:
+        return integer(parser.getNumberValue());
+      case VALUE_NUMBER_FLOAT:
+        Number number = parser.getNumberValue();
+        return number instanceof Float ? Double.valueOf(number.toString()) : (Object) number.doubleValue();
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return parser.getBooleanValue();
+      case VALUE_NULL:
+        return null;
+      case VALUE_EMBEDDED_OBJECT:
+        // Values handed to Jackson as-is, such as dates, binary data and JsonNodes
+        Object embedded = parser.getEmbeddedObject();
+        if(embedded instanceof byte[]) {
+          return Base64Variants.getDefaultVariant().encode((byte[]) embedded);
+        }
+        try(JsonParser tokens = mapper.treeAsTokens(mapper.valueToTree(embedded))) {
+          tokens.nextToken();
+          return readValue(tokens);
+        }
+      default:
+        throw new IllegalStateException("Unexpected token " + token);
+    }
+  }
+
+  /**
+   * Narrows integers the way a parser reading the JSON text would
+   */
+  private static Object integer(Number number) {
+    if(number instanceof BigInteger && ((BigInteger) number).bitLength() >= 64) {
+      return number;
+    }
+    long value = number.longValue();
+    return value == (int) value ? (Object) (int) value : (Object) value;
+  }
+
+  /**
+   * Serialize the view and compare it with a snapshot taken when the same view was last
+   * serialized. Keep the returned delta's {@link JsonViewDelta#snapshot()} for the next
+   * call.
+   * <p>
+   * The view is not written out and no tree of it is built. Its values are hashed while
+   * the view is traversed and compared with the snapshot at the same path, and only the
+   * values that changed are turned into JSON nodes, along with the contents of any array
+   * they are in. An unchanged view costs one traversal and the hashing of its values.
+   *
+   * @param view     The view to serialize
+   * @param previous The previous snapshot, or null to treat everything as changed
+   * @return JsonViewDelta
+   */
+  public JsonViewDelta delta(JsonView<?> view, JsonViewSnapshot previous) {
+    try(DeltaGenerator jgen = new DeltaGenerator(writer.createGenerator(OutputStream.nullOutputStream()), previous)) {
+      writer.writeValue(jgen, view);
+      return jgen.delta();
+    }
+  }
+
+  private void release(ByteBufferOutputStream out) {
+    out.reset();
+    if(pooled.incrementAndGet() <= maxPooledBuffers) {
+      pool.offer(out);
+    } else {
+      pooled.decrementAndGet();
+    }
+  }
+
+  /**
+   * A buffer holding serialized JSON, on loan from a {@link JsonViewWriter}.
+   */
+  public class PooledBuffer implements AutoCloseable {
+    private final ByteBufferOutputStream out;
+    private final ByteBuffer contents;
+    private boolean released = false;
+
+    private PooledBuffer(ByteBufferOutputStream out) {
+      this.out = out;
+      this.contents = out.buffer().duplicate();
+      this.contents.flip();
+    }
+
+    /**
+     * Returns the serialized JSON, positioned at its first byte and limited to its length.
+     * The buffer must not be used after this object has been closed.
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer buffer() {
+      return contents;
+    }
+
+    @Override
+    public void close() {
+      if(!released) {
+        released = true;
+        release(out);
+      }
+    }
+  }
+}
@@ -1,16 +1,24 @@
 package com.monitorjbl.json;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.function.BiFunction;
 
 public class Match {
-  private final Set<String> includes = new HashSet<>();
-  private final Set<String> excludes = new HashSet<>();
-  private final Map<String, BiFunction<Object, Object, Object>> transforms = new HashMap<>();
+  private Set<String> includes = new HashSet<>();
+  private Set<String> excludes = new HashSet<>();
+  private Map<String, BiFunction<Object, Object, Object>> transforms = new HashMap<>();
+  private Map<String, Window> windows = new HashMap<>();
+  private volatile boolean frozen = false;
+  private int fingerprint;
 
   Match() {
 
@@ -23,6 +31,7 @@ public class Match {
    * @return Match
    */
   public Match include(String... fields) {
+    checkNotFrozen();
     if(fields != null) {
       includes.addAll(Arrays.asList(fields));
     }
@@ -36,6 +45,7 @@ public class Match {
    * @return Match
    */
   public Match exclude(String... fields) {
+    checkNotFrozen();
     if(fields != null) {
       excludes.addAll(Arrays.asList(fields));
     }
@@ -54,10 +64,92 @@ public class Match {
    */
   @SuppressWarnings("unchecked")
   public <X, Y, Z> Match transform(String field, BiFunction<X, Y, Z> transformer) {
+    checkNotFrozen();
     transforms.put(field, (BiFunction<Object, Object, Object>) transformer);
     return this;
   }
 
+  /**
+   * Write at most the first {@code limit} elements of a list, set or array field.
+   *
+   * @param field The field to limit
+   * @param limit The maximum number of elements to write
+   * @return Match
+   */
+  public Match limit(String field, int limit) {
+    return slice(field, 0, limit);
+  }
+
+  /**
+   * Write at most {@code limit} elements of a list, set or array field, starting at
+   * {@code offset}. Skipped elements are never serialized, and lists that support fast
+   * random access are not even iterated over them.
+   *
+   * @param field  The field to slice
+   * @param offset The index of the first element to write
+   * @param limit  The maximum number of elements to write
+   * @return Match
+   */
+  public Match slice(String field, int offset, int limit) {
+    checkNotFrozen();
+    if(offset < 0 || limit < 0) {
+      throw new IllegalArgumentException("Offset and limit must not be negative");
+    }
+    Window window = windows.get(field);
+    windows.put(field, new Window(offset, limit, window == null ? null : window.totalField));
+    return this;
+  }
+
+  /**
+   * Write the total number of elements of a list, set or array field as an extra field
+   * next to it, so clients can tell how much of it was sliced off. The count is written
+   * just before the field itself.
+   *
+   * @param field      The field to count
+   * @param totalField The name of the extra field holding the count
+   * @return Match
+   */
+  public Match total(String field, String totalField) {
+    checkNotFrozen();
+    Window window = windows.get(field);
+    windows.put(field, window == null ? new Window(0, Integer.MAX_VALUE, totalField) : new Window(window.offset, window.limit, totalField));
+    return this;
+  }
+
+  /**
+   * Make this match immutable. Matches are frozen automatically the first time they are
+   * serialized, because the serializer caches its decisions against them; changing a
+   * match after that would leave stale results in the cache. Frozen matches can still be
+   * shared between any number of views.
+   *
+   * @return Match
+   */
+  public Match freeze() {
+    if(!frozen) {
+      synchronized(this) {
+        if(!frozen) {
+          includes = Collections.unmodifiableSet(includes);
+          excludes = Collections.unmodifiableSet(excludes);
+          transforms = Collections.unmodifiableMap(transforms);
+          windows = Collections.unmodifiableMap(windows);
+          fingerprint = computeHashCode();
+          frozen = true;
+        }
+      }
+    }
+    return this;
+  }
+
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  private void checkNotFrozen() {
+    if(frozen) {
+      throw new IllegalStateException("Match has already been used for serialization and can no longer be modified");
+    }
+  }
+
   Set<String> getIncludes() {
     return includes;
   }
@@ -70,6 +162,10 @@ public class Match {
     return transforms;
   }
 
+  Map<String, Window> getWindows() {
+    return windows;
+  }
+
   public static Match match() {
     return new Match();
   }
@@ -80,6 +176,7 @@ public class Match {
         "includes=" + includes +
         ", excludes=" + excludes +
         ", transforms=" + transforms +
+        ", windows=" + windows +
         '}';
   }
 
@@ -89,17 +186,88 @@ public class Match {
     if(o == null || getClass() != o.getClass()) return false;
 
     Match match = (Match) o;
+    if(frozen && match.frozen && fingerprint != match.fingerprint) return false;
 
     if(includes != null ? !includes.equals(match.includes) : match.includes != null) return false;
     if(excludes != null ? !excludes.equals(match.excludes) : match.excludes != null) return false;
-    return transforms != null ? transforms.equals(match.transforms) : match.transforms == null;
+    if(transforms != null ? !transforms.equals(match.transforms) : match.transforms != null) return false;
+    return windows != null ? windows.equals(match.windows) : match.windows == null;
   }
 
   @Override
   public int hashCode() {
+    return frozen ? fingerprint : computeHashCode();
+  }
+
+  private int computeHashCode() {
     int result = includes != null ? includes.hashCode() : 0;
     result = 31 * result + (excludes != null ? excludes.hashCode() : 0);
     result = 31 * result + (transforms != null ? transforms.hashCode() : 0);
+    result = 31 * result + (windows != null ? windows.hashCode() : 0);
     return result;
   }
+
+  /**
+   * The part of a collection field to write
+   */
+  static class Window {
+    final int offset;
+    final int limit;
+    final String totalField;
+
+    Window(int offset, int limit, String totalField) {
+      this.offset = offset;
+      this.limit = limit;
+      this.totalField = totalField;
+    }
+
+    /**
+     * Returns an iterator over the elements in this window, skipping the elements before it
+     * without serializing them
+     */
+    Iterator<?> apply(Iterable<?> elements) {
+      if(elements instanceof List && elements instanceof RandomAccess) {
+        List<?> list = (List<?>) elements;
+        int from = Math.min(offset, list.size());
+        return list.subList(from, (int) Math.min(list.size(), (long) from + limit)).iterator();
+      }
+
+      Iterator<?> iter = elements.iterator();
+      for(int i = 0; i < offset && iter.hasNext(); i++) {
+        iter.next();
+      }
+      return new Iterator<Object>() {
+        private int remaining = limit;
+
+        @Override
+        public boolean hasNext() {
+          return remaining > 0 && iter.hasNext();
+        }
+
+        @Override
+        public Object next() {
+          remaining--;
+          return iter.next();
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      Window window = (Window) o;
+      return offset == window.offset && limit == window.limit && Objects.equals(totalField, window.totalField);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(offset, limit, totalField);
+    }
+
+    @Override
+    public String toString() {
+      return "Window{offset=" + offset + ", limit=" + limit + ", totalField=" + totalField + '}';
+    }
+  }
 }
@@ -5,7 +5,6 @@ import com.monitorjbl.json.JsonViewSerializer.AccessibleProperty;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
@@ -27,12 +26,16 @@ class Memoizer {
     }
   }
 
-  public <T> T matches(Set<String> values, String pattern, boolean matchPrefix, Supplier<T> compute) {
-    return computeIfAbsent(MATCHES, new TriArg(values, pattern, matchPrefix), compute);
+  public <T> T matches(Match match, String pattern, boolean includes, Supplier<T> compute) {
+    return computeIfAbsent(MATCHES, new TriArg(match, pattern, includes), compute);
   }
 
-  public <T> T classMatches(JsonView jsonView, Class cls, Supplier<T> compute) {
-    return computeIfAbsent(CLASS_MATCHES, new BiArg(jsonView, cls), compute);
+  /**
+   * Caches per class for a view's frozen matches. The matches are used as the key rather
+   * than the view, which would keep the value it wraps from being collected.
+   */
+  public <T> T classMatches(Map<Class<?>, Match> matches, int fingerprint, Class cls, Supplier<T> compute) {
+    return computeIfAbsent(CLASS_MATCHES, new MatchesArg(matches, fingerprint, cls), compute);
   }
 
   public <T> T annotations(Class cls, Supplier<T> compute) {
@@ -128,6 +131,41 @@ class Memoizer {
     }
   }
 
+  private class MatchesArg implements Arg {
+    private final Map<Class<?>, Match> matches;
+    private final int fingerprint;
+    private final Class cls;
+
+    public MatchesArg(Map<Class<?>, Match> matches, int fingerprint, Class cls) {
+      this.matches = matches;
+      this.fingerprint = fingerprint;
+      this.cls = cls;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(this == o) return true;
+      if(o == null || getClass() != o.getClass()) return false;
+      MatchesArg that = (MatchesArg) o;
+      return fingerprint == that.fingerprint &&
+          Objects.equals(cls, that.cls) &&
+          (matches == that.matches || matches.equals(that.matches));
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * fingerprint + (cls != null ? cls.hashCode() : 0);
+    }
+
+    @Override
+    public String toString() {
+      return "MatchesArg{" +
+          "matches=" + matches +
+          ", cls=" + cls +
+          '}';
+    }
+  }
+
   private class TriArg implements Arg {
     private final Object arg1;
     private final Object arg2;
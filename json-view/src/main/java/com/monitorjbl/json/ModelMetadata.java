@@ -0,0 +1,19 @@
+package com.monitorjbl.json;
+
+import java.util.List;
+
+/**
+ * Property metadata for a single class, generated at compile time for classes annotated
+ * with {@link JsonViewModel}. The generated class is named after the binary name of the
+ * model class with {@value #SUFFIX} appended.
+ */
+public interface ModelMetadata {
+  String SUFFIX = "$JsonViewMetadata";
+
+  /**
+   * Returns the serializable properties of the class, in the order they are written
+   *
+   * @return List
+   */
+  List<PropertyMetadata> properties();
+}
@@ -0,0 +1,21 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.JsonGenerator;
+
+import java.util.List;
+
+/**
+ * Carries several views of one value through Jackson, so {@link JsonViewSerializer} can
+ * write all of them in a single traversal. The first view is written to the generator
+ * Jackson provides, the others to the given generators.
+ */
+class MultiView extends JsonView<Object> {
+  final List<? extends JsonView<?>> views;
+  final List<JsonGenerator> generators;
+
+  MultiView(List<? extends JsonView<?>> views, List<JsonGenerator> generators) {
+    super(views.isEmpty() ? null : views.get(0).getValue());
+    this.views = views;
+    this.generators = generators;
+  }
+}
@@ -0,0 +1,16 @@
+package com.monitorjbl.json;
+
+/**
+ * Carries a view through Jackson so {@link JsonViewSerializer} can open it without
+ * writing it. The serializer leaves a traversal behind that {@link JsonViewStream}
+ * steps through later, on the same generator.
+ */
+class PausedView extends JsonView<Object> {
+  final JsonView<?> view;
+  JsonViewSerializer.Traversal traversal;
+
+  PausedView(JsonView<?> view) {
+    super(view.getValue());
+    this.view = view;
+  }
+}
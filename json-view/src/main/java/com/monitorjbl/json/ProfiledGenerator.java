@@ -0,0 +1,207 @@
+package com.monitorjbl.json;
+
+import tools.jackson.core.Base64Variant;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.util.JsonGeneratorDelegate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Counts the bytes written through a generator while a serialization is being profiled.
+ * Only the tokens themselves are counted, as UTF-8 and without escaping, separators or
+ * whitespace, so the count is a close lower bound of the real output size.
+ */
+class ProfiledGenerator extends JsonGeneratorDelegate {
+  private long written = 0;
+
+  ProfiledGenerator(JsonGenerator delegate) {
+    super(delegate, false);
+  }
+
+  long written() {
+    return written;
+  }
+
+  private static int utf8Length(CharSequence value) {
+    int length = value.length();
+    for(int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if(c >= 0x800) {
+        length += Character.isSurrogate(c) ? 1 : 2;
+      } else if(c >= 0x80) {
+        length++;
+      }
+    }
+    return length;
+  }
+
+  @Override
+  public JsonGenerator writeStartArray() {
+    written++;
+    return super.writeStartArray();
+  }
+
+  @Override
+  public JsonGenerator writeStartArray(Object currentValue) {
+    written++;
+    return super.writeStartArray(currentValue);
+  }
+
+  @Override
+  public JsonGenerator writeStartArray(Object currentValue, int size) {
+    written++;
+    return super.writeStartArray(currentValue, size);
+  }
+
+  @Override
+  public JsonGenerator writeEndArray() {
+    written++;
+    return super.writeEndArray();
+  }
+
+  @Override
+  public JsonGenerator writeStartObject() {
+    written++;
+    return super.writeStartObject();
+  }
+
+  @Override
+  public JsonGenerator writeStartObject(Object currentValue) {
+    written++;
+    return super.writeStartObject(currentValue);
+  }
+
+  @Override
+  public JsonGenerator writeStartObject(Object currentValue, int size) {
+    written++;
+    return super.writeStartObject(currentValue, size);
+  }
+
+  @Override
+  public JsonGenerator writeEndObject() {
+    written++;
+    return super.writeEndObject();
+  }
+
+  @Override
+  public JsonGenerator writeName(String name) {
+    written += utf8Length(name) + 2;
+    return super.writeName(name);
+  }
+
+  @Override
+  public JsonGenerator writeName(SerializableString name) {
+    written += utf8Length(name.getValue()) + 2;
+    return super.writeName(name);
+  }
+
+  @Override
+  public JsonGenerator writeString(String text) {
+    written += text == null ? 4 : utf8Length(text) + 2;
+    return super.writeString(text);
+  }
+
+  @Override
+  public JsonGenerator writeString(SerializableString text) {
+    written += utf8Length(text.getValue()) + 2;
+    return super.writeString(text);
+  }
+
+  @Override
+  public JsonGenerator writeString(char[] text, int offset, int len) {
+    written += utf8Length(new String(text, offset, len)) + 2;
+    return super.writeString(text, offset, len);
+  }
+
+  @Override
+  public JsonGenerator writeRaw(String text) {
+    written += utf8Length(text);
+    return super.writeRaw(text);
+  }
+
+  @Override
+  public JsonGenerator writeRaw(char c) {
+    written++;
+    return super.writeRaw(c);
+  }
+
+  @Override
+  public JsonGenerator writeRaw(SerializableString raw) {
+    written += utf8Length(raw.getValue());
+    return super.writeRaw(raw);
+  }
+
+  @Override
+  public JsonGenerator writeRawValue(String text) {
+    written += utf8Length(text);
+    return super.writeRawValue(text);
+  }
+
+  @Override
+  public JsonGenerator writeBinary(Base64Variant b64variant, byte[] data, int offset, int len) {
+    written += (len + 2) / 3 * 4L + 2;
+    return super.writeBinary(b64variant, data, offset, len);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(short v) {
+    written += Short.toString(v).length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(int v) {
+    written += Integer.toString(v).length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(long v) {
+    written += Long.toString(v).length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(BigInteger v) {
+    written += v == null ? 4 : v.toString().length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(double v) {
+    written += Double.toString(v).length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(float v) {
+    written += Float.toString(v).length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(BigDecimal v) {
+    written += v == null ? 4 : v.toString().length();
+    return super.writeNumber(v);
+  }
+
+  @Override
+  public JsonGenerator writeNumber(String encodedValue) {
+    written += encodedValue == null ? 4 : encodedValue.length();
+    return super.writeNumber(encodedValue);
+  }
+
+  @Override
+  public JsonGenerator writeBoolean(boolean state) {
+    written += state ? 4 : 5;
+    return super.writeBoolean(state);
+  }
+
+  @Override
+  public JsonGenerator writeNull() {
+    written += 4;
+    return super.writeNull();
+  }
+}
@@ -0,0 +1,273 @@
+package com.monitorjbl.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import tools.jackson.databind.ValueSerializer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Describes one property of a generated {@link ModelMetadata}: its name, the field or
+ * getter it is read from, and every member whose annotations apply to it. Metadata
+ * generated with the property's type, modifiers and {@link Annotations} is used without
+ * reflecting over the members at all; otherwise their annotations are read at runtime.
+ */
+public final class PropertyMetadata {
+  private final String name;
+  private final Function<Object, Object> accessor;
+  private final Class<?> type;
+  private final int modifiers;
+  private final Annotations annotations;
+  private final Member member;
+  private final List<Member> annotationSources;
+
+  /**
+   * @param name              The name of the property
+   * @param accessor          Reads the property directly, or null if it can only be read through reflection
+   * @param member            The field or getter the property is read from
+   * @param annotationSources Other members with the same name whose annotations also apply
+   */
+  public PropertyMetadata(String name, Function<Object, Object> accessor, Member member, Member... annotationSources) {
+    this(name, accessor, null, 0, null, member, annotationSources);
+  }
+
+  /**
+   * @param name              The name of the property
+   * @param accessor          Reads the property directly, or null if it can only be read through reflection
+   * @param type              The erased type of the field, or return type of the getter
+   * @param modifiers         The modifiers of the member, as defined by {@link java.lang.reflect.Modifier}
+   * @param annotations       The annotations of every member, combined
+   * @param member            The field or getter the property is read from
+   * @param annotationSources Other members with the same name whose annotations also apply
+   */
+  public PropertyMetadata(String name, Function<Object, Object> accessor, Class<?> type, int modifiers, Annotations annotations,
+                          Member member, Member... annotationSources) {
+    this.name = name;
+    this.accessor = accessor;
+    this.type = type;
+    this.modifiers = modifiers;
+    this.annotations = annotations;
+    this.member = member;
+    this.annotationSources = Collections.unmodifiableList(Arrays.asList(annotationSources));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Function<Object, Object> getAccessor() {
+    return accessor;
+  }
+
+  /**
+   * Returns the erased type of the property, or null if it was not generated
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  public int getModifiers() {
+    return modifiers;
+  }
+
+  /**
+   * Returns the annotations that affect serialization, or null if they were not
+   * generated and have to be read from the members
+   */
+  public Annotations getAnnotations() {
+    return annotations;
+  }
+
+  public Member getMember() {
+    return member;
+  }
+
+  public List<Member> getAnnotationSources() {
+    return annotationSources;
+  }
+
+  /**
+   * A field or no-argument method, identified by its declaring class and name
+   */
+  public static final class Member {
+    private final Class<?> declaringClass;
+    private final String name;
+    private final boolean method;
+
+    private Member(Class<?> declaringClass, String name, boolean method) {
+      this.declaringClass = declaringClass;
+      this.name = name;
+      this.method = method;
+    }
+
+    public static Member field(Class<?> declaringClass, String name) {
+      return new Member(declaringClass, name, false);
+    }
+
+    public static Member getter(Class<?> declaringClass, String name) {
+      return new Member(declaringClass, name, true);
+    }
+
+    public Class<?> getDeclaringClass() {
+      return declaringClass;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isMethod() {
+      return method;
+    }
+
+    /**
+     * Returns the {@link java.lang.reflect.Field} or {@link java.lang.reflect.Method}
+     */
+    Object resolve() {
+      try {
+        return method ? declaringClass.getDeclaredMethod(name) : declaringClass.getDeclaredField(name);
+      } catch(NoSuchMethodException | NoSuchFieldException e) {
+        throw new RuntimeException("Generated metadata is out of date with " + declaringClass, e);
+      }
+    }
+  }
+
+  /**
+   * The Jackson and json-view annotations on a property that affect how it is written.
+   * Generated code sets only the annotations that are present.
+   */
+  public static final class Annotations {
+    private String name;
+    private boolean ignored;
+    private Include include;
+    private Class<? extends ValueSerializer> serializer;
+    private boolean backReference;
+    private boolean managedReference;
+    private List<String> ignoredProperties;
+    private String fragmentVersion;
+
+    /**
+     * {@code @JsonProperty}
+     *
+     * @param name The name set on the annotation
+     * @return Annotations
+     */
+    public Annotations name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    /**
+     * {@code @JsonIgnore}
+     *
+     * @param ignored The value of the annotation
+     * @return Annotations
+     */
+    public Annotations ignored(boolean ignored) {
+      this.ignored = ignored;
+      return this;
+    }
+
+    /**
+     * {@code @JsonInclude}
+     *
+     * @param include The value of the annotation
+     * @return Annotations
+     */
+    public Annotations include(Include include) {
+      this.include = include;
+      return this;
+    }
+
+    /**
+     * {@code @JsonSerialize}
+     *
+     * @param serializer The serializer set with {@code using}
+     * @return Annotations
+     */
+    public Annotations serializer(Class<? extends ValueSerializer> serializer) {
+      this.serializer = serializer;
+      return this;
+    }
+
+    /**
+     * {@code @JsonBackReference}
+     *
+     * @return Annotations
+     */
+    public Annotations backReference() {
+      this.backReference = true;
+      return this;
+    }
+
+    /**
+     * {@code @JsonManagedReference}
+     *
+     * @return Annotations
+     */
+    public Annotations managedReference() {
+      this.managedReference = true;
+      return this;
+    }
+
+    /**
+     * {@code @JsonIgnoreProperties}
+     *
+     * @param ignoredProperties The properties to ignore on the value
+     * @return Annotations
+     */
+    public Annotations ignoredProperties(String... ignoredProperties) {
+      this.ignoredProperties = Collections.unmodifiableList(Arrays.asList(ignoredProperties));
+      return this;
+    }
+
+    /**
+     * {@link CacheableFragment}
+     *
+     * @param version The version property set on the annotation
+     * @return Annotations
+     */
+    public Annotations cacheable(String version) {
+      this.fragmentVersion = version;
+      return this;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isIgnored() {
+      return ignored;
+    }
+
+    public Include getInclude() {
+      return include;
+    }
+
+    public Class<? extends ValueSerializer> getSerializer() {
+      return serializer;
+    }
+
+    public boolean isBackReference() {
+      return backReference;
+    }
+
+    public boolean isManagedReference() {
+      return managedReference;
+    }
+
+    public List<String> getIgnoredProperties() {
+      return ignoredProperties;
+    }
+
+    /**
+     * Returns the version property of {@link CacheableFragment}, or null if the property
+     * is not cacheable
+     */
+    public String getFragmentVersion() {
+      return fragmentVersion;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.monitorjbl.json;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the objects written during a single serialization. Objects are compared
+ * by identity, never by {@code equals()}.
+ */
+class ReferenceTracker {
+  private final Map<Object, Object> ids = new IdentityHashMap<>();
+  private final Map<Object, Boolean> inProgress = new IdentityHashMap<>();
+  private final Map<JsonIdentityInfo, ObjectIdGenerator<?>> generatorsByAnnotation = new HashMap<>();
+  private final List<ObjectIdGenerator<?>> generators = new ArrayList<>();
+
+  /**
+   * Returns the id already assigned to the object, or null if it has none
+   */
+  Object idOf(Object obj) {
+    return ids.get(obj);
+  }
+
+  void assignId(Object obj, Object id) {
+    ids.put(obj, id);
+  }
+
+  boolean isInProgress(Object obj) {
+    return inProgress.containsKey(obj);
+  }
+
+  void enter(Object obj) {
+    inProgress.put(obj, Boolean.TRUE);
+  }
+
+  void exit(Object obj) {
+    inProgress.remove(obj);
+  }
+
+  /**
+   * Returns the id generator for the annotation. Annotations with the same generator
+   * type and scope share a generator, so ids are unique within that scope.
+   */
+  ObjectIdGenerator<?> generatorFor(JsonIdentityInfo identityInfo) {
+    return generatorsByAnnotation.computeIfAbsent(identityInfo, info -> {
+      ObjectIdGenerator<?> blueprint;
+      try {
+        blueprint = info.generator().getDeclaredConstructor().newInstance().forScope(info.scope());
+      } catch(ReflectiveOperationException e) {
+        throw new RuntimeException(e);
+      }
+
+      for(ObjectIdGenerator<?> generator : generators) {
+        if(generator.canUseFor(blueprint)) {
+          return generator;
+        }
+      }
+      ObjectIdGenerator<?> generator = blueprint.newForSerialization(this);
+      generators.add(generator);
+      return generator;
+    });
+  }
+}
@@ -0,0 +1,219 @@
+package com.monitorjbl.json;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates where serialization time and output go, per property path such as
+ * {@code orders.items.product}. Only a sampled fraction of serializations is profiled,
+ * so a profiler with a low sample rate can stay enabled in production. Serializations
+ * that are not sampled run without any profiling overhead.
+ * <p>
+ * For each path the profiler records how many values were written, how many bytes they
+ * took (including everything nested below them), how long their getters and transforms
+ * took and how long custom serializers spent writing them.
+ * <p>
+ * Instances are thread-safe and can be shared between serializers. Set one with
+ * {@link JsonViewSerializer#setProfiler(SerializationProfiler)}.
+ */
+public class SerializationProfiler {
+  private static final Comparator<PathCost> BY_COST = Comparator
+      .comparingLong(PathCost::getTotalNanos).reversed()
+      .thenComparing(Comparator.comparingLong(PathCost::getBytes).reversed())
+      .thenComparing(PathCost::getPath);
+
+  private final double sampleRate;
+  private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+  private final LongAdder samples = new LongAdder();
+
+  /**
+   * Creates a profiler that profiles every serialization.
+   */
+  public SerializationProfiler() {
+    this(1.0);
+  }
+
+  /**
+   * @param sampleRate Fraction of serializations to profile, between 0 and 1
+   */
+  public SerializationProfiler(double sampleRate) {
+    if(sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+    }
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Returns a new sample if the next serialization should be profiled, or null
+   */
+  Sample sample() {
+    if(sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+      return new Sample();
+    }
+    return null;
+  }
+
+  private void record(Sample sample) {
+    samples.increment();
+    sample.costs.forEach((path, cost) -> totals.computeIfAbsent(path, p -> new Totals()).add(cost));
+  }
+
+  /**
+   * Returns the accumulated cost of every path, most expensive first. Paths are ordered by
+   * the time spent in getters, transforms and custom serializers, then by bytes written.
+   *
+   * @return List
+   */
+  public List<PathCost> report() {
+    List<PathCost> report = new ArrayList<>();
+    totals.forEach((path, t) -> report.add(new PathCost(path, t.count.sum(), t.bytes.sum(), t.readNanos.sum(), t.serializerNanos.sum())));
+    report.sort(BY_COST);
+    return report;
+  }
+
+  /**
+   * Returns the number of serializations profiled so far
+   *
+   * @return long
+   */
+  public long getSampleCount() {
+    return samples.sum();
+  }
+
+  /**
+   * Discards everything recorded so far.
+   */
+  public void reset() {
+    totals.clear();
+    samples.reset();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("%d sampled serialization(s)%n", getSampleCount()));
+    builder.append(String.format("%-40s %10s %12s %12s %12s%n", "path", "count", "bytes", "read us", "serializer us"));
+    for(PathCost cost : report()) {
+      builder.append(String.format("%-40s %10d %12d %12.1f %12.1f%n", cost.path, cost.count, cost.bytes,
+          cost.readNanos / 1e3, cost.serializerNanos / 1e3));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * The costs of a single profiled serialization. These are collected without
+   * synchronization and added to the profiler's totals once the serialization ends.
+   */
+  class Sample {
+    private final Map<String, long[]> costs = new HashMap<>();
+    ProfiledGenerator generator;
+
+    private long[] cost(String path) {
+      return costs.computeIfAbsent(path, p -> new long[4]);
+    }
+
+    void read(String path, long nanos) {
+      long[] cost = cost(path);
+      cost[0]++;
+      cost[2] += nanos;
+    }
+
+    void serialized(String path, long nanos) {
+      cost(path)[3] += nanos;
+    }
+
+    void wrote(String path, long bytes) {
+      cost(path)[1] += bytes;
+    }
+
+    long bytes() {
+      return generator.written();
+    }
+
+    void finish() {
+      record(this);
+    }
+  }
+
+  private static class Totals {
+    final LongAdder count = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder readNanos = new LongAdder();
+    final LongAdder serializerNanos = new LongAdder();
+
+    void add(long[] cost) {
+      count.add(cost[0]);
+      bytes.add(cost[1]);
+      readNanos.add(cost[2]);
+      serializerNanos.add(cost[3]);
+    }
+  }
+
+  /**
+   * The accumulated cost of one property path
+   */
+  public static class PathCost {
+    private final String path;
+    private final long count;
+    private final long bytes;
+    private final long readNanos;
+    private final long serializerNanos;
+
+    PathCost(String path, long count, long bytes, long readNanos, long serializerNanos) {
+      this.path = path;
+      this.count = count;
+      this.bytes = bytes;
+      this.readNanos = readNanos;
+      this.serializerNanos = serializerNanos;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Returns the number of values written at this path
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the bytes written for this path, including its name and everything nested
+     * below it. Escaping, separators and whitespace are not counted.
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Returns the time spent in getters and transforms reading the values at this path
+     */
+    public long getReadNanos() {
+      return readNanos;
+    }
+
+    /**
+     * Returns the time spent in custom serializers writing the values at this path
+     */
+    public long getSerializerNanos() {
+      return serializerNanos;
+    }
+
+    public long getTotalNanos() {
+      return readNanos + serializerNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "PathCost{path=" + path + ", count=" + count + ", bytes=" + bytes +
+          ", readNanos=" + readNanos + ", serializerNanos=" + serializerNanos + '}';
+    }
+  }
+}
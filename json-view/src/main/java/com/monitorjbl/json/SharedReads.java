@@ -0,0 +1,94 @@
+package com.monitorjbl.json;
+
+import com.monitorjbl.json.JsonViewSerializer.AccessibleProperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Remembers the last property read, so writers stepping through the same object together
+ * only read each property once. Also keeps the asynchronous properties started during the
+ * traversal, so each is started once however many writers or paths reach it, along with
+ * the deadline they all share. Not thread-safe; one instance is used per traversal.
+ */
+class SharedReads {
+  private Object obj;
+  private AccessibleProperty property;
+  private Object value;
+
+  private Map<StartedKey, Future<?>> started;
+  //futures started by the serializer, as opposed to those handed to it by the object
+  private List<Future<?>> owned;
+  private long deadline;
+
+  Object get(Object obj, AccessibleProperty property) {
+    if(obj != this.obj || property != this.property) {
+      this.value = property.get(obj);
+      this.obj = obj;
+      this.property = property;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the future of an asynchronous property that has already been started, or null
+   */
+  Future<?> started(Object obj, AccessibleProperty property) {
+    return started != null ? started.get(new StartedKey(obj, property)) : null;
+  }
+
+  /**
+   * Records a started asynchronous property. The deadline for all of them is set by the
+   * first one.
+   *
+   * @param owned Whether the serializer started the future, and may cancel it
+   */
+  void start(Object obj, AccessibleProperty property, Future<?> future, boolean owned, long timeoutNanos) {
+    if(started == null) {
+      started = new HashMap<>();
+      this.owned = new ArrayList<>();
+      deadline = System.nanoTime() + timeoutNanos;
+    }
+    started.put(new StartedKey(obj, property), future);
+    if(owned) {
+      this.owned.add(future);
+    }
+  }
+
+  long deadline() {
+    return deadline;
+  }
+
+  /**
+   * Cancels every future the serializer started, leaving futures that belong to the
+   * objects being written alone
+   */
+  void cancelOwned() {
+    if(owned != null) {
+      owned.forEach(f -> f.cancel(true));
+    }
+  }
+
+  private static class StartedKey {
+    private final Object obj;
+    private final AccessibleProperty property;
+
+    StartedKey(Object obj, AccessibleProperty property) {
+      this.obj = obj;
+      this.property = property;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof StartedKey && ((StartedKey) o).obj == obj && ((StartedKey) o).property.equals(property);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(obj) + property.hashCode();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.monitorjbl.json;
+
+/**
+ * Dictates how nested objects are walked when serializing.
+ */
+public enum TraversalMode {
+  /**
+   * Recurse on the Java stack once per level of nesting. This is
+   * the fastest option for shallow object graphs.
+   */
+  RECURSIVE,
+
+  /**
+   * Keep nested objects on an explicit work stack instead of the
+   * Java stack, so deeply nested graphs can be written without
+   * growing the thread's stack
+   */
+  ITERATIVE
+}
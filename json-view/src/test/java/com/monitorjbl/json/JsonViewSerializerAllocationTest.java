@@ -0,0 +1,144 @@
+package com.monitorjbl.json;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import com.monitorjbl.json.model.TestObject;
+import com.monitorjbl.json.model.TestSubobject;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.monitorjbl.json.Match.match;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards against allocation regressions. Each case serializes a representative view and
+ * checks the bytes allocated per JSON node written (objects, arrays and scalar values)
+ * against a budget. Each budget is 15 to 20 percent above the highest allocation measured
+ * when it was set, noted next to it, which covers the few percent that JIT state moves the
+ * measurement between runs. A deliberate change in allocation needs its budget re-measured.
+ */
+public class JsonViewSerializerAllocationTest {
+  private static final Logger log = LoggerFactory.getLogger(JsonViewSerializerAllocationTest.class);
+  private static final int WARMUP = 500;
+  private static final int ITERATIONS = 200;
+
+  private com.sun.management.ThreadMXBean threads;
+  private ObjectMapper sut;
+
+  @Before
+  public void setup() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    sut = JsonMapper.builder()
+        .addModule(new JsonViewModule(new JsonViewSerializer()))
+        .build();
+  }
+
+  @Test
+  public void testBean() {
+    assertBudget("bean", JsonView.with(bean(1))
+        .onClass(TestObject.class, match().exclude("int1")), 2_400); //measured at 2056
+  }
+
+  @Test
+  public void testList() {
+    List<TestObject> list = new ArrayList<>();
+    for(int i = 0; i < 100; i++) {
+      list.add(bean(i));
+    }
+    assertBudget("list", JsonView.with(list)
+        .onClass(TestObject.class, match().exclude("int1")), 2_300); //measured at 1987
+  }
+
+  @Test
+  public void testMap() {
+    Map<String, TestSubobject> map = new LinkedHashMap<>();
+    for(int i = 0; i < 100; i++) {
+      map.put("key" + i, new TestSubobject("val" + i));
+    }
+    assertBudget("map", JsonView.with(map), 650); //measured at 565
+  }
+
+  @Test
+  public void testPrimitiveArrays() {
+    TestObject obj = new TestObject();
+    int[] ints = new int[1_000];
+    for(int i = 0; i < ints.length; i++) {
+      ints[i] = i;
+    }
+    obj.setIntArray(ints);
+    assertBudget("primitive arrays", JsonView.with(obj)
+        .onClass(TestObject.class, match().exclude("*").include("intArray")), 45); //measured at 38
+  }
+
+  @Test
+  public void testDeepNesting() {
+    TestSubobject root = new TestSubobject("0");
+    TestSubobject current = root;
+    for(int i = 1; i < 200; i++) {
+      TestSubobject next = new TestSubobject(String.valueOf(i));
+      current.setSub(next);
+      current = next;
+    }
+    assertBudget("deep nesting", JsonView.with(root), 700); //measured at 595
+  }
+
+  private TestObject bean(int i) {
+    TestObject obj = new TestObject();
+    obj.setInt1(i);
+    obj.setStr1("str" + i);
+    obj.setStr2("other" + i);
+    obj.setList(asList("red", "green", "blue"));
+    obj.setSub(new TestSubobject("sub" + i));
+    return obj;
+  }
+
+  private void assertBudget(String name, JsonView<?> view, long bytesPerNodeBudget) {
+    long nodes = countNodes(sut.readTree(sut.writeValueAsString(view)));
+
+    for(int i = 0; i < WARMUP; i++) {
+      serialize(view);
+    }
+
+    long min = Long.MAX_VALUE;
+    long threadId = Thread.currentThread().getId();
+    for(int i = 0; i < ITERATIONS; i++) {
+      long before = threads.getThreadAllocatedBytes(threadId);
+      serialize(view);
+      min = Math.min(min, threads.getThreadAllocatedBytes(threadId) - before);
+    }
+
+    long bytesPerNode = min / nodes;
+    log.info("{}: {} bytes allocated for {} nodes ({} bytes/node, budget {})", name, min, nodes, bytesPerNode, bytesPerNodeBudget);
+    assertTrue(name + " allocated " + bytesPerNode + " bytes per node, budget is " + bytesPerNodeBudget,
+        bytesPerNode <= bytesPerNodeBudget);
+  }
+
+  private void serialize(JsonView<?> view) {
+    sut.writeValue(OutputStream.nullOutputStream(), view);
+  }
+
+  private static long countNodes(JsonNode node) {
+    long count = 1;
+    for(Iterator<JsonNode> iter = node.values().iterator(); iter.hasNext(); ) {
+      count += countNodes(iter.next());
+    }
+    return count;
+  }
+}
@@ -0,0 +1,178 @@
+package com.monitorjbl.json;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import com.google.common.collect.ImmutableMap;
+import com.monitorjbl.json.model.TestObject;
+import com.monitorjbl.json.model.TestSubobject;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.monitorjbl.json.Match.match;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Load test for concurrent use of a single serializer. Every run starts from a fresh
+ * serializer, so the first pass over each thread measures cold-start contention on the
+ * memoizer, followed by a timed steady-state run over a mix of view shapes. Latencies are
+ * recorded in HdrHistograms and reported as throughput and p50/p99/p99.9.
+ */
+@RunWith(Parameterized.class)
+public class JsonViewSerializerConcurrencyTest {
+  private static final int VIRTUAL = -1;
+  private static final long WARMUP_MILLIS = 2_000;
+  private static final long RUN_MILLIS = 5_000;
+  private static final int COLD_START_OPERATIONS = 10;
+
+  private final int threads;
+
+  @Parameterized.Parameters(name = "{0} threads")
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[][]{
+        {1},
+        {2},
+        {4},
+        {8},
+        {16},
+        {32},
+        {VIRTUAL},
+    });
+  }
+
+  public JsonViewSerializerConcurrencyTest(int threads) {
+    this.threads = threads;
+  }
+
+  @Test
+  public void measureScaling() throws Exception {
+    ExecutorService executor = executor();
+    int workers = threads == VIRTUAL ? 64 : threads;
+    ObjectMapper sut = JsonMapper.builder()
+        .addModule(new JsonViewModule(new JsonViewSerializer()))
+        .build();
+
+    try {
+      Recorder cold = new Recorder(3);
+      run(executor, workers, sut, cold, COLD_START_OPERATIONS, Long.MAX_VALUE);
+
+      run(executor, workers, sut, new Recorder(3), Integer.MAX_VALUE, System.currentTimeMillis() + WARMUP_MILLIS);
+
+      Recorder steady = new Recorder(3);
+      long start = System.nanoTime();
+      run(executor, workers, sut, steady, Integer.MAX_VALUE, System.currentTimeMillis() + RUN_MILLIS);
+      long elapsed = System.nanoTime() - start;
+
+      String name = threads == VIRTUAL ? "virtual" : String.valueOf(threads);
+      report(name, "cold", cold.getIntervalHistogram(), 0);
+      report(name, "steady", steady.getIntervalHistogram(), elapsed);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void run(ExecutorService executor, int workers, ObjectMapper sut, Recorder recorder,
+                   int operations, long deadline) throws Exception {
+    CountDownLatch ready = new CountDownLatch(workers);
+    CountDownLatch go = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for(int i = 0; i < workers; i++) {
+      futures.add(executor.submit(() -> {
+        ready.countDown();
+        go.await();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for(int op = 0; op < operations && System.currentTimeMillis() < deadline; op++) {
+          JsonView<?> view = SHAPES.get(random.nextInt(SHAPES.size())).get();
+          long before = System.nanoTime();
+          sut.writeValueAsString(view);
+          recorder.recordValue(System.nanoTime() - before);
+        }
+        return null;
+      }));
+    }
+    ready.await();
+    go.countDown();
+    for(Future<?> f : futures) {
+      f.get();
+    }
+  }
+
+  private ExecutorService executor() throws Exception {
+    if(threads != VIRTUAL) {
+      return Executors.newFixedThreadPool(threads);
+    }
+
+    // Virtual threads are only available from Java 21
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch(NoSuchMethodException e) {
+      assumeTrue("Virtual threads are not supported by this JVM", false);
+      return null;
+    }
+  }
+
+  private void report(String name, String phase, Histogram histogram, long elapsedNanos) {
+    String throughput = elapsedNanos == 0 ? "-" :
+        String.format("%.0f ops/s", histogram.getTotalCount() / (elapsedNanos / 1e9));
+    System.out.printf("[%-7s %-6s]: | Ops: %-9d | Throughput: %-13s | p50: %-9s | p99: %-9s | p99.9: %-9s | max: %-9s |\n",
+        name, phase, histogram.getTotalCount(), throughput,
+        micros(histogram.getValueAtPercentile(50)),
+        micros(histogram.getValueAtPercentile(99)),
+        micros(histogram.getValueAtPercentile(99.9)),
+        micros(histogram.getMaxValue()));
+  }
+
+  private static String micros(long nanos) {
+    return String.format("%.1fus", nanos / 1000.0);
+  }
+
+  private static final List<Supplier<JsonView<?>>> SHAPES = Arrays.asList(
+      () -> JsonView.with(testObject())
+          .onClass(TestObject.class, match().exclude("int1")),
+      () -> JsonView.with(testObject())
+          .onClass(TestObject.class, match().exclude("*").include("str1", "sub"))
+          .onClass(TestSubobject.class, match().exclude("sub")),
+      () -> JsonView.with(newArrayList(testObject(), testObject(), testObject(), testObject(), testObject()))
+          .onClass(TestObject.class, match().exclude("list", "mapOfStrings")),
+      () -> JsonView.with(ImmutableMap.of("a", testObject(), "b", testObject()))
+          .onClass(TestObject.class, match().exclude("int1", "str2")),
+      () -> JsonView.with(nested(20))
+  );
+
+  private static TestObject testObject() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    TestObject obj = new TestObject();
+    obj.setInt1(random.nextInt());
+    obj.setStr1("str" + random.nextInt(1000));
+    obj.setStr2("str" + random.nextInt(1000));
+    obj.setList(newArrayList("red", "green", "blue"));
+    obj.setMapOfStrings(ImmutableMap.of("key", "value"));
+    obj.setSub(new TestSubobject("sub" + random.nextInt(1000)));
+    return obj;
+  }
+
+  private static TestSubobject nested(int depth) {
+    TestSubobject root = new TestSubobject("0");
+    TestSubobject current = root;
+    for(int i = 1; i < depth; i++) {
+      TestSubobject next = new TestSubobject(String.valueOf(i));
+      current.setSub(next);
+      current = next;
+    }
+    return root;
+  }
+}
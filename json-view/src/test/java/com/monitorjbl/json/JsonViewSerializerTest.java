@@ -1,6 +1,8 @@
 package com.monitorjbl.json;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import tools.jackson.core.StreamWriteConstraints;
+import tools.jackson.databind.DatabindException;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.SerializationFeature;
 import tools.jackson.databind.cfg.DateTimeFeature;
@@ -14,6 +16,7 @@ import com.google.common.primitives.Ints;
 import com.monitorjbl.json.model.CustomType;
 import com.monitorjbl.json.model.CustomTypeSerializer;
 import com.monitorjbl.json.model.NonReplacableKeyMap;
+import com.monitorjbl.json.model.TestAsync;
 import com.monitorjbl.json.model.TestAutodetect.AutodetectDefault;
 import com.monitorjbl.json.model.TestAutodetect.AutodetectFields;
 import com.monitorjbl.json.model.TestAutodetect.AutodetectGetters;
@@ -22,11 +25,28 @@ import com.monitorjbl.json.model.TestBackreferenceObject;
 import com.monitorjbl.json.model.TestBackreferenceObject.TestForwardReferenceObject;
 import com.monitorjbl.json.model.TestChildObject;
 import com.monitorjbl.json.model.TestDuplicateKeys.ClassC;
+import com.monitorjbl.json.model.TestFragment.Catalog;
+import com.monitorjbl.json.model.TestFragment.Country;
+import com.monitorjbl.json.model.TestFragment.Currency;
+import com.monitorjbl.json.model.TestFragment.Region;
+import com.monitorjbl.json.model.TestGenerated.GeneratedFields;
+import com.monitorjbl.json.model.TestGenerated.GeneratedModel;
+import com.monitorjbl.json.model.TestGenerated.ReflectedFields;
+import com.monitorjbl.json.model.TestGenerated.ReflectedModel;
+import com.monitorjbl.json.model.TestIdentity.Holder;
+import com.monitorjbl.json.model.TestIdentity.PropertyNode;
+import com.monitorjbl.json.model.TestIdentity.SequenceNode;
 import com.monitorjbl.json.model.TestInterface;
+import com.monitorjbl.json.model.TestMultiView.Customer;
+import com.monitorjbl.json.model.TestMultiView.Order;
 import com.monitorjbl.json.model.TestNonNulls;
 import com.monitorjbl.json.model.TestNulls;
 import com.monitorjbl.json.model.TestObject;
 import com.monitorjbl.json.model.TestObject.TestEnum;
+import com.monitorjbl.json.model.TestRecords.Address;
+import com.monitorjbl.json.model.TestRecords.Flags;
+import com.monitorjbl.json.model.TestRecords.GeneratedPerson;
+import com.monitorjbl.json.model.TestRecords.Person;
 import com.monitorjbl.json.model.TestSubobject;
 import com.monitorjbl.json.model.TestSuperinterface;
 import com.monitorjbl.json.model.TestSuperinterface.TestChildInterface;
@@ -35,19 +55,37 @@ import com.monitorjbl.json.model.TestUnrelatedObject;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URL;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static com.monitorjbl.json.Match.match;
 import static java.util.Arrays.asList;
@@ -56,6 +94,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings("unchecked")
 public class JsonViewSerializerTest {
@@ -232,7 +271,6 @@ public class JsonViewSerializerTest {
     ref3.setId(3L);
     ref3.setName("xxzcvxc");
 
-    JsonViewSerializer.log = true;
     String serialized = sut.writeValueAsString(
         JsonView.with(asList(ref1, ref2, ref3))
             .onClass(TestObject.class, match()
@@ -244,7 +282,6 @@ public class JsonViewSerializerTest {
             .onClass(TestUnrelatedObject.class, match()
                 .exclude("name")));
     List<Map<String, Object>> output = sut.readValue(serialized, ArrayList.class);
-    JsonViewSerializer.log = false;
 
     assertEquals(3, output.size());
 
@@ -1189,4 +1226,945 @@ public class JsonViewSerializerTest {
     assertNotNull(obj.get("widgetName"));
   }
 
+  @Test
+  public void testIterativeTraversal_matchesRecursive() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setInt1(1);
+    ref.setStr2("asdf");
+    ref.setStringArray(new String[]{"apple", "banana"});
+    ref.setIntArray(new int[]{1, 2, 3});
+    ref.setList(asList("red", "blue", "green"));
+    ref.setMapOfObjects(ImmutableMap.of("key1", new TestSubobject("test1")));
+    ref.setListOfObjects(asList(new TestSubobject("test2", new TestSubobject("test3"))));
+    ref.setSub(new TestSubobject("qwerqwerqwerqw", new TestSubobject("poxcpvoxcv")));
+    JsonView<TestObject> view = JsonView.with(ref).onClass(TestObject.class, match()
+        .exclude("str2")
+        .exclude("sub.val")
+        .exclude("listOfObjects.sub.val")
+        .include("ignoredDirect"));
+
+    String recursive = sut.writeValueAsString(view);
+    serializer.setTraversalMode(TraversalMode.ITERATIVE);
+    String iterative = sut.writeValueAsString(view);
+
+    assertEquals(recursive, iterative);
+  }
+
+  @Test
+  public void testIterativeTraversal_deepNesting() throws IOException {
+    int depth = 20_000;
+    TestSubobject ref = new TestSubobject("0");
+    for(int i = 1; i < depth; i++) {
+      ref = new TestSubobject(Integer.toString(i), ref);
+    }
+
+    serializer.setTraversalMode(TraversalMode.ITERATIVE);
+    sut = tools.jackson.databind.json.JsonMapper.builder(tools.jackson.core.json.JsonFactory.builder()
+        .streamWriteConstraints(StreamWriteConstraints.builder().maxNestingDepth(Integer.MAX_VALUE).build())
+        .build())
+        .addModule(new JsonViewModule(serializer))
+        .build();
+    String serialized = sut.writeValueAsString(JsonView.with(ref).onClass(TestSubobject.class, match()
+        .exclude("otherVal")));
+
+    assertTrue(serialized.startsWith("{\"val\":\"" + (depth - 1) + "\",\"sub\":{"));
+    assertEquals(depth, serialized.split("\"val\"", -1).length - 1);
+    assertFalse(serialized.contains("otherVal"));
+  }
+
+  @Test
+  public void testReferenceTracking_sequenceIds() throws IOException {
+    SequenceNode root = new SequenceNode("root");
+    SequenceNode child1 = new SequenceNode("child1");
+    SequenceNode child2 = new SequenceNode("child2");
+    child1.setParent(root);
+    child2.setParent(root);
+    root.setChildren(asList(child1, child2, child1));
+
+    serializer.setReferenceTracking(true);
+    String serialized = sut.writeValueAsString(JsonView.with(root).onClass(SequenceNode.class, match()
+        .exclude("children.children")));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals(1, obj.get("@id"));
+    assertEquals("root", obj.get("name"));
+    List<Object> children = (List<Object>) obj.get("children");
+    assertEquals(3, children.size());
+    assertEquals(2, ((Map) children.get(0)).get("@id"));
+    assertEquals(1, ((Map) children.get(0)).get("parent"));
+    assertEquals(3, ((Map) children.get(1)).get("@id"));
+    assertEquals("child2", ((Map) children.get(1)).get("name"));
+    assertEquals(2, children.get(2));
+  }
+
+  @Test
+  public void testReferenceTracking_propertyIds() throws IOException {
+    PropertyNode node = new PropertyNode("USD", "US Dollar");
+    Holder holder = new Holder();
+    holder.setFirst(node);
+    holder.setSecond(node);
+
+    serializer.setReferenceTracking(true);
+    String serialized = sut.writeValueAsString(JsonView.with(holder));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals("USD", ((Map) obj.get("first")).get("code"));
+    assertEquals("US Dollar", ((Map) obj.get("first")).get("description"));
+    assertEquals("USD", obj.get("second"));
+  }
+
+  @Test
+  public void testReferenceTracking_cycleDetected() throws IOException {
+    Holder holder = new Holder();
+    holder.setSelf(holder);
+
+    serializer.setReferenceTracking(true);
+    try {
+      sut.writeValueAsString(JsonView.with(holder));
+      fail("Expected cycle to be reported");
+    } catch(DatabindException e) {
+      assertTrue(e.getMessage().contains("Cycle detected"));
+    }
+  }
+
+  @Test
+  public void testReferenceTracking_cycleCutByView() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setRecursion(ref);
+
+    serializer.setReferenceTracking(true);
+    String serialized = sut.writeValueAsString(JsonView.with(ref).onClass(TestObject.class, match()
+        .exclude("recursion")));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals("str1", obj.get("str1"));
+    assertFalse(obj.containsKey("recursion"));
+  }
+
+  @Test
+  public void testWriter_outputStream() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setInt1(1);
+    ref.setStr2("asdf");
+    JsonView<TestObject> view = JsonView.with(ref).onClass(TestObject.class, match().exclude("str2"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.writer(sut).write(view, out);
+
+    assertEquals(sut.writeValueAsString(view), out.toString("UTF-8"));
+  }
+
+  @Test
+  public void testWriter_byteBuffers() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setInt1(1);
+    JsonView<TestObject> view = JsonView.with(ref).onClass(TestObject.class, match().exclude("str2"));
+    byte[] expected = sut.writeValueAsBytes(view);
+    JsonViewWriter writer = serializer.writer(sut);
+
+    for(ByteBuffer buffer : asList(ByteBuffer.allocate(4096), ByteBuffer.allocateDirect(4096))) {
+      buffer.position(10);
+      writer.write(view, buffer);
+      assertEquals(10 + expected.length, buffer.position());
+
+      byte[] actual = new byte[expected.length];
+      buffer.flip().position(10);
+      buffer.get(actual);
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
+  @Test
+  public void testWriter_byteBufferOverflow() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setInt1(1);
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.position(2);
+
+    try {
+      serializer.writer(sut).write(JsonView.with(ref), buffer);
+      fail("Expected buffer to overflow");
+    } catch(BufferOverflowException e) {
+      assertEquals(2, buffer.position());
+    }
+  }
+
+  @Test
+  public void testWriter_pooledBuffers() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setInt1(1);
+    ref.setList(asList("red", "blue", "green"));
+    JsonView<TestObject> view = JsonView.with(ref);
+    byte[] expected = sut.writeValueAsBytes(view);
+    JsonViewWriter writer = serializer.writer(sut)
+        .withInitialBufferSize(16)
+        .withDirectBuffers(true);
+
+    ByteBuffer first;
+    try(JsonViewWriter.PooledBuffer pooled = writer.writeToPooledBuffer(view)) {
+      first = pooled.buffer();
+      byte[] actual = new byte[first.remaining()];
+      first.get(actual);
+      assertTrue(first.isDirect());
+      assertTrue(Arrays.equals(expected, actual));
+    }
+
+    try(JsonViewWriter.PooledBuffer pooled = writer.writeToPooledBuffer(view)) {
+      byte[] actual = new byte[pooled.buffer().remaining()];
+      pooled.buffer().get(actual);
+      assertTrue(Arrays.equals(expected, actual));
+    }
+  }
+
+  @Test
+  public void testFragmentCache_identity() throws IOException {
+    FragmentCache cache = new FragmentCache(1024);
+    serializer.setFragmentCache(cache);
+    Currency currency = new Currency("USD", "US Dollar");
+    Catalog catalog = new Catalog();
+    catalog.setId("catalog");
+    catalog.setCurrency(currency);
+    catalog.setTags(asList("red", "blue"));
+
+    String first = sut.writeValueAsString(JsonView.with(catalog));
+    currency.setName("changed");
+    String second = sut.writeValueAsString(JsonView.with(catalog));
+
+    assertEquals(first, second);
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(2, cache.getHitCount());
+    Map<String, Object> obj = sut.readValue(second, NonReplacableKeyMap.class);
+    assertEquals("US Dollar", ((Map) obj.get("currency")).get("name"));
+    assertEquals(asList("red", "blue"), obj.get("tags"));
+  }
+
+  @Test
+  public void testFragmentCache_version() throws IOException {
+    FragmentCache cache = new FragmentCache(1024);
+    serializer.setFragmentCache(cache);
+    Catalog catalog = new Catalog();
+    Country canada = new Country("Canada", 1);
+    catalog.setCountry(canada);
+    sut.writeValueAsString(JsonView.with(catalog));
+    sut.writeValueAsString(JsonView.with(catalog));
+    assertEquals(1, cache.getHitCount());
+
+    //without an id, distinct objects sharing a version are cached apart
+    catalog.setCountry(new Country("Mexico", 1));
+    Map<String, Object> obj = sut.readValue(sut.writeValueAsString(JsonView.with(catalog)), NonReplacableKeyMap.class);
+    assertEquals("Mexico", ((Map) obj.get("country")).get("name"));
+    catalog.setCountry(new Country("Canada", 1));
+    sut.writeValueAsString(JsonView.with(catalog));
+    assertEquals(1, cache.getHitCount());
+
+    catalog.setCountry(new Country("Mexico", 2));
+    obj = sut.readValue(sut.writeValueAsString(JsonView.with(catalog)), NonReplacableKeyMap.class);
+    assertEquals("Mexico", ((Map) obj.get("country")).get("name"));
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void testFragmentCache_versionAndId() throws IOException {
+    FragmentCache cache = new FragmentCache(1024);
+    serializer.setFragmentCache(cache);
+    Catalog catalog = new Catalog();
+    catalog.setRegion(new Region("CA", "Canada", 1));
+    sut.writeValueAsString(JsonView.with(catalog));
+
+    //objects with the same id and version share their JSON
+    catalog.setRegion(new Region("CA", "Canada", 1));
+    sut.writeValueAsString(JsonView.with(catalog));
+    assertEquals(1, cache.getHitCount());
+
+    catalog.setRegion(new Region("MX", "Mexico", 1));
+    Map<String, Object> obj = sut.readValue(sut.writeValueAsString(JsonView.with(catalog)), NonReplacableKeyMap.class);
+    assertEquals("Mexico", ((Map) obj.get("region")).get("name"));
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void testFragmentCache_separatedByView() throws IOException {
+    serializer.setFragmentCache(new FragmentCache(1024));
+    Catalog catalog = new Catalog();
+    catalog.setCurrency(new Currency("USD", "US Dollar"));
+
+    sut.writeValueAsString(JsonView.with(catalog));
+    Map<String, Object> obj = sut.readValue(sut.writeValueAsString(JsonView.with(catalog)
+        .onClass(Catalog.class, match().exclude("currency.name"))), NonReplacableKeyMap.class);
+    assertFalse(((Map) obj.get("currency")).containsKey("name"));
+
+    obj = sut.readValue(sut.writeValueAsString(JsonView.with(catalog)
+        .onClass(Currency.class, match().exclude("code"))), NonReplacableKeyMap.class);
+    assertFalse(((Map) obj.get("currency")).containsKey("code"));
+    assertEquals("US Dollar", ((Map) obj.get("currency")).get("name"));
+  }
+
+  @Test
+  public void testFragmentCache_eviction() throws IOException {
+    FragmentCache cache = new FragmentCache(64);
+    serializer.setFragmentCache(cache);
+    for(int i = 0; i < 10; i++) {
+      Catalog catalog = new Catalog();
+      catalog.setCurrency(new Currency("C" + i, "Currency " + i));
+      sut.writeValueAsString(JsonView.with(catalog));
+    }
+
+    assertTrue(cache.getSize() <= 64);
+    assertTrue(cache.getEvictionCount() > 0);
+    assertEquals(10, cache.getMissCount());
+  }
+
+  @Test
+  public void testFieldSelection_parse() {
+    assertEquals("id,name,orders(id,total)", FieldSelection.parse(" orders( total , id ),name,id").toString());
+    assertEquals("a(b,c)", FieldSelection.parse("a(b),a(c)").toString());
+    assertEquals("a", FieldSelection.parse("a(b),a").toString());
+    assertEquals(FieldSelection.parse("b,a"), FieldSelection.parse("a,b"));
+
+    for(String invalid : asList("", "a,", "a(b", "a()", "a)b", "a b")) {
+      try {
+        FieldSelection.parse(invalid);
+        fail("Expected '" + invalid + "' to be rejected");
+      } catch(IllegalArgumentException e) {
+        //expected
+      }
+    }
+  }
+
+  @Test
+  public void testFieldSelection_intersect() {
+    FieldSelection controller = FieldSelection.parse("id,name,orders(id,total),address");
+    assertEquals("address(city),id,orders(id)",
+        FieldSelection.intersect(controller, FieldSelection.parse("id,secret,orders(id,items),address(city)")).toString());
+    assertEquals("orders(id,total)", FieldSelection.intersect(controller, FieldSelection.parse("orders")).toString());
+    assertEquals("", FieldSelection.intersect(controller, FieldSelection.parse("secret")).toString());
+    assertEquals(controller, FieldSelection.intersect(controller, null));
+    assertEquals(controller, FieldSelection.intersect(null, controller));
+    assertNull(FieldSelection.intersect(null, null));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFieldSelection_nested() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setStr2("str2");
+    ref.setInt1(1);
+    ref.setSub(new TestSubobject("val", new TestSubobject("nested")));
+    ref.setListOfObjects(asList(new TestSubobject("first"), new TestSubobject("second")));
+
+    String serialized = sut.writeValueAsString(JsonView.with(ref)
+        .withFieldSelection(FieldSelection.parse("str1,sub,listOfObjects(val)")));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals(3, obj.size());
+    assertEquals("str1", obj.get("str1"));
+    Map<String, Object> sub = (Map<String, Object>) obj.get("sub");
+    assertEquals("val", sub.get("val"));
+    assertEquals("nested", ((Map<String, Object>) sub.get("sub")).get("val"));
+    for(Map<String, Object> element : (List<Map<String, Object>>) obj.get("listOfObjects")) {
+      assertEquals(1, element.size());
+      assertNotNull(element.get("val"));
+    }
+  }
+
+  @Test
+  public void testFieldSelection_onlyNarrowsView() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setStr2("str2");
+    ref.setIgnoredDirect("ignored");
+    ref.setJsonProp("prop");
+
+    String serialized = sut.writeValueAsString(JsonView.with(ref)
+        .onClass(TestObject.class, match().exclude("str2"))
+        .withFieldSelection(FieldSelection.parse("str1,str2,ignoredDirect,totallyJsonProp")));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals(2, obj.size());
+    assertEquals("str1", obj.get("str1"));
+    assertEquals("prop", obj.get("totallyJsonProp"));
+  }
+
+  @Test
+  public void testPreload() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setSub(new TestSubobject("val"));
+    ref.setListOfObjects(asList(new TestSubobject("first")));
+    JsonView<TestObject> view = JsonView.with(ref).onClass(TestObject.class, match().exclude("str1"));
+    String expected = sut.writeValueAsString(view);
+
+    JsonViewSerializer preloaded = new JsonViewSerializer();
+    //TestSubobject and CustomType are reachable through TestObject's properties
+    assertTrue(preloaded.preload(TestObject.class) >= 3);
+    preloaded.precompile(JsonView.with(null).onClass(TestObject.class, match().exclude("str1")));
+
+    ObjectMapper mapper = tools.jackson.databind.json.JsonMapper.builder()
+        .addModule(new JsonViewModule(preloaded))
+        .enable(DateTimeFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        .build();
+    assertEquals(expected, mapper.writeValueAsString(view));
+  }
+
+  @Test
+  public void testGeneratedMetadata_matchesReflection() throws Exception {
+    GeneratedModel generated = new GeneratedModel();
+    ReflectedModel reflected = new ReflectedModel();
+    for(GeneratedModel model : asList(generated, reflected)) {
+      model.setBaseName("base");
+      model.setName("name");
+      model.setSecret("secret");
+      model.setCount(4);
+    }
+
+    Map<String, Object> fromGenerated = sut.readValue(sut.writeValueAsString(JsonView.with(generated)), NonReplacableKeyMap.class);
+    Map<String, Object> fromReflection = sut.readValue(sut.writeValueAsString(JsonView.with(reflected)), NonReplacableKeyMap.class);
+    assertEquals(fromReflection, fromGenerated);
+    assertEquals("name4", fromGenerated.get("derived"));
+    assertNull(fromGenerated.get("secret"));
+    assertFalse(fromGenerated.containsKey("alias"));
+
+    generated.setNickname("nick");
+    reflected.setNickname("nick");
+    fromGenerated = sut.readValue(sut.writeValueAsString(JsonView.with(generated)), NonReplacableKeyMap.class);
+    fromReflection = sut.readValue(sut.writeValueAsString(JsonView.with(reflected)), NonReplacableKeyMap.class);
+    assertEquals(fromReflection, fromGenerated);
+    assertEquals("nick", fromGenerated.get("alias"));
+
+    Map<String, Object> fieldsFromGenerated = sut.readValue(sut.writeValueAsString(JsonView.with(new GeneratedFields("a", "b"))), NonReplacableKeyMap.class);
+    Map<String, Object> fieldsFromReflection = sut.readValue(sut.writeValueAsString(JsonView.with(new ReflectedFields("a", "b"))), NonReplacableKeyMap.class);
+    assertEquals(fieldsFromReflection, fieldsFromGenerated);
+    assertEquals(2, fieldsFromGenerated.size());
+  }
+
+  @Test
+  public void testGeneratedMetadata_accessors() throws Exception {
+    ModelMetadata metadata = (ModelMetadata) Class.forName(GeneratedFields.class.getName() + ModelMetadata.SUFFIX)
+        .getDeclaredConstructor().newInstance();
+    Map<String, PropertyMetadata> properties = new HashMap<>();
+    metadata.properties().forEach(p -> properties.put(p.getName(), p));
+
+    assertEquals(2, properties.size());
+    //private members can only be read through reflection
+    assertNull(properties.get("hidden").getAccessor());
+    assertEquals("b", properties.get("shown").getAccessor().apply(new GeneratedFields("a", "b")));
+    assertEquals(String.class, properties.get("hidden").getType());
+    assertTrue(Modifier.isPrivate(properties.get("hidden").getModifiers()));
+  }
+
+  @Test
+  public void testGeneratedMetadata_annotations() throws Exception {
+    ModelMetadata metadata = (ModelMetadata) Class.forName(GeneratedModel.class.getName() + ModelMetadata.SUFFIX)
+        .getDeclaredConstructor().newInstance();
+    Map<String, PropertyMetadata> properties = new HashMap<>();
+    metadata.properties().forEach(p -> properties.put(p.getName(), p));
+
+    //annotations on the field apply to the getter the property is read from
+    assertTrue(properties.get("secret").getAnnotations().isIgnored());
+    assertEquals("alias", properties.get("nickname").getAnnotations().getName());
+    assertEquals(Include.NON_NULL, properties.get("nickname").getAnnotations().getInclude());
+    assertEquals(int.class, properties.get("count").getType());
+    assertNull(properties.get("count").getAnnotations().getName());
+    assertFalse(properties.get("count").getAnnotations().isIgnored());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRecords() throws IOException {
+    Person person = new Person("Jane", "secret", 41, asList(new Address("Springfield", true), new Address("Shelbyville", false)));
+    String serialized = sut.writeValueAsString(JsonView.with(person)
+        .onClass(Address.class, match().exclude("primary")));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals(asList("name", "age", "addresses"), new ArrayList<>(obj.keySet()));
+    assertEquals("Jane", obj.get("name"));
+    assertEquals(41, obj.get("age"));
+    List<Map<String, Object>> addresses = (List<Map<String, Object>>) obj.get("addresses");
+    assertEquals("Springfield", addresses.get(0).get("city"));
+    assertFalse(addresses.get(0).containsKey("primary"));
+  }
+
+  @Test
+  public void testRecords_generatedMetadata() throws IOException {
+    List<Address> addresses = asList(new Address("Springfield", true));
+    String reflected = sut.writeValueAsString(JsonView.with(new Person("Jane", "secret", 41, addresses)));
+    String generated = sut.writeValueAsString(JsonView.with(new GeneratedPerson("Jane", "secret", 41, addresses)));
+    assertEquals(reflected, generated);
+  }
+
+  @Test
+  public void testBooleanGetters() throws IOException {
+    String serialized = sut.writeValueAsString(JsonView.with(new Flags(true, false)));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals(2, obj.size());
+    assertEquals(true, obj.get("active"));
+    assertEquals("get wins over is", obj.get("verified"));
+  }
+
+  @Test
+  public void testFreeze_onSerialization() throws IOException {
+    Match match = match().exclude("str1");
+    JsonView<TestObject> view = JsonView.with(new TestObject()).onClass(TestObject.class, match);
+    assertFalse(view.isFrozen());
+
+    sut.writeValueAsString(view);
+    assertTrue(view.isFrozen());
+    assertTrue(match.isFrozen());
+
+    try {
+      match.exclude("str2");
+      fail("Expected frozen match to reject changes");
+    } catch(IllegalStateException e) {
+      //expected
+    }
+    try {
+      view.onClass(TestSubobject.class, match().exclude("val"));
+      fail("Expected frozen view to reject changes");
+    } catch(IllegalStateException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testFreeze_equalMatchesShareResults() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setStr2("str2");
+
+    Map<String, Object> first = sut.readValue(sut.writeValueAsString(JsonView.with(ref)
+        .onClass(TestObject.class, match().exclude("str1"))), NonReplacableKeyMap.class);
+    Map<String, Object> second = sut.readValue(sut.writeValueAsString(JsonView.with(ref)
+        .onClass(TestObject.class, match().exclude("str2"))), NonReplacableKeyMap.class);
+
+    assertFalse(first.containsKey("str1"));
+    assertEquals("str2", first.get("str2"));
+    assertEquals("str1", second.get("str1"));
+    assertFalse(second.containsKey("str2"));
+
+    Match a = match().include("a").exclude("b").freeze();
+    Match b = match().include("a").exclude("b").freeze();
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+    assertEquals(JsonView.with(1).onClass(TestObject.class, a).freeze(), JsonView.with(2).onClass(TestObject.class, b).freeze());
+  }
+
+  @Test
+  public void testDelta() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setSub(new TestSubobject("first"));
+    ref.setMapOfStrings(new HashMap<>(ImmutableMap.of("a", "1", "b", "2")));
+    JsonViewWriter writer = serializer.writer(sut);
+
+    JsonViewDelta initial = writer.delta(JsonView.with(ref).onClass(TestObject.class, match().exclude("str2")), null);
+    assertEquals(sut.readTree(sut.writeValueAsString(JsonView.with(ref).onClass(TestObject.class, match().exclude("str2")))), initial.patch());
+    assertEquals(asList(""), initial.changedPaths());
+
+    JsonViewDelta unchanged = writer.delta(JsonView.with(ref).onClass(TestObject.class, match().exclude("str2")), initial.snapshot());
+    assertTrue(unchanged.isEmpty());
+    assertTrue(unchanged.changedPaths().isEmpty());
+
+    ref.setStr1("changed");
+    ref.getSub().setVal("second");
+    ref.getMapOfStrings().remove("b");
+    ref.getMapOfStrings().put("c/d", "3");
+    JsonViewDelta delta = writer.delta(JsonView.with(ref).onClass(TestObject.class, match().exclude("str2")), unchanged.snapshot());
+
+    assertEquals(sut.readTree("{\"str1\":\"changed\",\"sub\":{\"val\":\"second\"},\"mapOfStrings\":{\"c/d\":\"3\",\"b\":null}}"),
+        delta.patch());
+    assertEquals(new HashSet<>(asList("/str1", "/sub/val", "/mapOfStrings/c~1d", "/mapOfStrings/b")),
+        new HashSet<>(delta.changedPaths()));
+  }
+
+  @Test
+  public void testDelta_propertyOrder() throws IOException {
+    Map<String, Object> first = new LinkedHashMap<>();
+    first.put("a", "1");
+    first.put("b", ImmutableMap.of("c", 2, "d", 3));
+    Map<String, Object> second = new LinkedHashMap<>();
+    second.put("b", ImmutableMap.of("d", 3, "c", 2));
+    second.put("a", "1");
+    JsonViewWriter writer = serializer.writer(sut);
+
+    JsonViewDelta initial = writer.delta(JsonView.with(first), null);
+    JsonViewDelta reordered = writer.delta(JsonView.with(second), initial.snapshot());
+    assertTrue(reordered.isEmpty());
+    assertTrue(reordered.changedPaths().isEmpty());
+
+    second.put("a", "2");
+    assertEquals(asList("/a"), writer.delta(JsonView.with(second), initial.snapshot()).changedPaths());
+  }
+
+  @Test
+  public void testDelta_nested() throws IOException {
+    Map<String, Object> inner = new LinkedHashMap<>();
+    inner.put("count", 1);
+    inner.put("big", Long.MAX_VALUE);
+    inner.put("items", new ArrayList<>(asList(ImmutableMap.of("id", 1), ImmutableMap.of("id", 2))));
+    Map<String, Object> root = new LinkedHashMap<>();
+    root.put("name", "root");
+    root.put("inner", inner);
+    JsonViewWriter writer = serializer.writer(sut);
+
+    JsonViewDelta initial = writer.delta(JsonView.with(root), null);
+    assertEquals(sut.readTree(sut.writeValueAsString(JsonView.with(root))), initial.patch());
+
+    inner.put("count", 2L);
+    ((List<Object>) inner.get("items")).set(1, ImmutableMap.of("id", 3));
+    JsonViewDelta delta = writer.delta(JsonView.with(root), initial.snapshot());
+    assertEquals(sut.readTree("{\"inner\":{\"count\":2,\"items\":[{\"id\":1},{\"id\":3}]}}"), delta.patch());
+    assertEquals(asList("/inner/count", "/inner/items"), delta.changedPaths());
+
+    inner.put("count", 2);
+    assertTrue(writer.delta(JsonView.with(root), delta.snapshot()).isEmpty());
+  }
+
+  @Test
+  public void testMultiView() throws IOException {
+    Order order = new Order(7, "s3cret", new Customer("Jane", "jane@example.com"),
+        asList(new Customer("Bob", "bob@example.com"), new Customer("Ann", "ann@example.com")));
+    List<JsonView<Order>> views = asList(
+        JsonView.with(order).onClass(Order.class, match().exclude("secret")),
+        JsonView.with(order).onClass(Customer.class, match().exclude("email")),
+        JsonView.with(order).onClass(Order.class, match()
+            .exclude("contacts")
+            .transform("customer", (Order o, Customer c) -> new Customer(c.getName().toUpperCase(), null))));
+    List<String> expected = new ArrayList<>();
+    for(JsonView<Order> view : views) {
+      expected.add(sut.writeValueAsString(view));
+    }
+
+    List<ByteArrayOutputStream> outs = asList(new ByteArrayOutputStream(), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+    Order.READS.set(0);
+    serializer.writer(sut).write(views, outs);
+
+    for(int i = 0; i < views.size(); i++) {
+      assertEquals(expected.get(i), outs.get(i).toString("UTF-8"));
+    }
+    //4 order properties and 2 for each of the 3 customers, plus the transform and the customer it creates
+    assertEquals(4 + 3 * 2 + 1 + 2, Order.READS.get());
+  }
+
+  @Test
+  public void testMultiView_differentWindows() throws IOException {
+    Order order = new Order(7, "s3cret", new Customer("Jane", "jane@example.com"), asList(new Customer("Bob", "bob@example.com"),
+        new Customer("Ann", "ann@example.com"), new Customer("Sue", "sue@example.com")));
+    JsonView<Order> full = JsonView.with(order).onClass(Order.class, match().exclude("secret"));
+    JsonView<Order> limited = JsonView.with(order).onClass(Order.class, match().exclude("secret").limit("contacts", 2));
+    String expectedFull = sut.writeValueAsString(full);
+    String expectedLimited = sut.writeValueAsString(limited);
+
+    //the shorter list must neither be overrun nor cut the longer one short, whichever comes first
+    for(List<JsonView<Order>> views : asList(asList(full, limited), asList(limited, full))) {
+      List<ByteArrayOutputStream> outs = asList(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+      serializer.writer(sut).write(views, outs);
+      for(int i = 0; i < views.size(); i++) {
+        assertEquals(views.get(i) == full ? expectedFull : expectedLimited, outs.get(i).toString("UTF-8"));
+      }
+    }
+  }
+
+  @Test
+  public void testMultiView_differentValues() throws IOException {
+    try {
+      serializer.writer(sut).write(asList(JsonView.with(new TestObject()), JsonView.with(new TestObject())),
+          asList(new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+      fail("Expected views of different values to be rejected");
+    } catch(IllegalArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    TestObject ref = new TestObject();
+    ref.setInt1(1);
+    ref.setStr1("str1");
+    ref.setStr2("str2");
+    ref.setDate(new Date());
+    ref.setByteArray("bytes".getBytes());
+    ref.setList(asList("red", "green"));
+    ref.setSub(new TestSubobject("sub"));
+    ref.setCustom(new CustomType(5L, "custom"));
+    ref.setJsonNode(sut.readTree("{\"a\":[1,2]}"));
+    JsonView<TestObject> view = JsonView.with(ref).onClass(TestObject.class, match()
+        .exclude("str2")
+        .transform("str1", (TestObject t, String s) -> s.toUpperCase()));
+    JsonViewWriter writer = serializer.writer(sut);
+
+    //binary values stay binary nodes in the tree, so compare what they write
+    assertEquals(sut.writeValueAsString(view), sut.writeValueAsString(writer.toTree(view)));
+
+    Map<String, Object> projected = writer.toMap(view);
+    assertEquals(sut.readValue(sut.writeValueAsString(view), LinkedHashMap.class), projected);
+    assertEquals("STR1", projected.get("str1"));
+    assertFalse(projected.containsKey("str2"));
+    try {
+      projected.put("str2", "str2");
+      fail("Expected projected map to be unmodifiable");
+    } catch(UnsupportedOperationException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testStream() throws IOException {
+    List<TestObject> list = new ArrayList<>();
+    for(int i = 0; i < 100; i++) {
+      TestObject ref = new TestObject();
+      ref.setInt1(i);
+      ref.setStr1("str" + i);
+      ref.setList(asList("red", "green"));
+      ref.setSub(new TestSubobject("sub" + i));
+      list.add(ref);
+    }
+    JsonView<List<TestObject>> view = JsonView.with(list).onClass(TestObject.class, match().exclude("str2"));
+    String expected = sut.writeValueAsString(view);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteBuffer chunk = ByteBuffer.allocate(64);
+    int chunks = 0;
+    try(JsonViewStream stream = serializer.writer(sut).stream(view)) {
+      while(!stream.isDone()) {
+        chunk.clear();
+        int written = stream.nextChunk(chunk);
+        assertEquals(written, chunk.position());
+        out.write(chunk.array(), 0, written);
+        chunks++;
+      }
+    }
+
+    assertEquals(expected, out.toString("UTF-8"));
+    assertEquals((expected.length() + 63) / 64, chunks);
+  }
+
+  @Test
+  public void testStream_scalar() throws IOException {
+    ByteBuffer chunk = ByteBuffer.allocate(64);
+    try(JsonViewStream stream = serializer.writer(sut).stream(JsonView.with("value"))) {
+      stream.nextChunk(chunk);
+      assertTrue(stream.isDone());
+    }
+    assertEquals("\"value\"", new String(chunk.array(), 0, chunk.position(), "UTF-8"));
+  }
+
+  @Test
+  public void testExport() throws IOException {
+    List<TestSubobject> items = new ArrayList<>();
+    for(int i = 0; i < 1_000; i++) {
+      TestSubobject item = new TestSubobject("val" + i);
+      item.setOtherVal("other" + i);
+      items.add(item);
+    }
+    Function<TestSubobject, JsonView<?>> view = item -> JsonView.with(item).onClass(TestSubobject.class, match().exclude("otherVal"));
+    Path dir = Files.createTempDirectory("export");
+    JsonViewWriter writer = serializer.writer(sut);
+
+    JsonViewExporter.Result array = writer.exporter()
+        .withBufferSize(256)
+        .export(items.stream(), view, dir.resolve("items.json"));
+    assertEquals(1_000, array.getItems());
+    assertEquals(Files.size(dir.resolve("items.json")), array.getBytes());
+    List<Map<String, Object>> written = sut.readValue(dir.resolve("items.json").toFile(), List.class);
+    assertEquals(1_000, written.size());
+    assertEquals("val999", written.get(999).get("val"));
+    assertFalse(written.get(0).containsKey("otherVal"));
+
+    JsonViewExporter.Result lines = writer.exporter()
+        .withFormat(ExportFormat.JSON_LINES)
+        .withShards(4)
+        .withBatchSize(10)
+        .export(items, view, dir.resolve("items.jsonl"));
+    assertEquals(1_000, lines.getItems());
+    assertEquals(4, lines.getFiles().size());
+
+    Set<String> values = new HashSet<>();
+    for(Path file : lines.getFiles()) {
+      assertTrue(file.getFileName().toString().matches("items-[0-3]\\.jsonl"));
+      for(String line : Files.readAllLines(file)) {
+        Map<String, Object> obj = sut.readValue(line, NonReplacableKeyMap.class);
+        assertFalse(obj.containsKey("otherVal"));
+        values.add((String) obj.get("val"));
+      }
+    }
+    assertEquals(1_000, values.size());
+
+    for(Path file : Files.newDirectoryStream(dir)) {
+      Files.delete(file);
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void testWriteLines() throws IOException {
+    JsonView<Stream<TestSubobject>> view = JsonView.with(Stream.of(new TestSubobject("first"), new TestSubobject("second")))
+        .onClass(TestSubobject.class, match().exclude("otherVal"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.writer(sut).writeLines(view, out);
+
+    String[] lines = out.toString("UTF-8").split("\n", -1);
+    assertEquals(3, lines.length);
+    assertEquals("", lines[2]);
+    assertEquals(sut.writeValueAsString(JsonView.with(new TestSubobject("first"))
+        .onClass(TestSubobject.class, match().exclude("otherVal"))), lines[0]);
+    assertEquals("second", sut.readValue(lines[1], NonReplacableKeyMap.class).get("val"));
+
+    try {
+      serializer.writer(sut).writeLines(JsonView.with(new TestObject()), new ByteArrayOutputStream());
+      fail("Expected JSON Lines of a single object to be rejected");
+    } catch(IllegalArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testWindow() throws Exception {
+    TestObject ref = new TestObject();
+    ref.setList(new LinkedList<>(asList("a", "b", "c", "d", "e")));
+    ref.setIntArray(new int[]{1, 2, 3, 4});
+    ref.setStringArray(new String[]{"x", "y", "z"});
+    ref.setListOfObjects(asList(new TestSubobject("first"), new TestSubobject("second"), new TestSubobject("third")));
+
+    String serialized = sut.writeValueAsString(JsonView.with(ref)
+        .onClass(TestObject.class, match()
+            .limit("list", 2)
+            .slice("intArray", 1, 2)
+            .slice("stringArray", 1, 10)
+            .slice("listOfObjects", 5, 2)
+            .total("list", "listCount")
+            .total("intArray", "intArrayCount")));
+    Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+
+    assertEquals(asList("a", "b"), obj.get("list"));
+    assertEquals(5, obj.get("listCount"));
+    assertEquals(asList(2, 3), obj.get("intArray"));
+    assertEquals(4, obj.get("intArrayCount"));
+    assertEquals(asList("y", "z"), obj.get("stringArray"));
+    assertEquals(Collections.emptyList(), obj.get("listOfObjects"));
+    assertTrue(serialized.indexOf("\"listCount\"") < serialized.indexOf("\"list\""));
+
+    try {
+      match().slice("list", -1, 2);
+      fail("Expected a negative offset to be rejected");
+    } catch(IllegalArgumentException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void testProfiler() throws Exception {
+    TestObject ref = new TestObject();
+    ref.setStr1("abc");
+    ref.setListOfObjects(asList(new TestSubobject("first"), new TestSubobject("second"), new TestSubobject("third")));
+
+    SerializationProfiler profiler = new SerializationProfiler();
+    serializer.setProfiler(profiler);
+    try {
+      for(int i = 0; i < 2; i++) {
+        sut.writeValueAsString(JsonView.with(ref)
+            .onClass(TestObject.class, match().exclude("*").include("str1", "listOfObjects", "listOfObjects.val")));
+      }
+    } finally {
+      serializer.setProfiler(null);
+    }
+
+    assertEquals(2, profiler.getSampleCount());
+    Map<String, SerializationProfiler.PathCost> costs = new HashMap<>();
+    profiler.report().forEach(c -> costs.put(c.getPath(), c));
+    assertEquals(2, costs.get("str1").getCount());
+    assertEquals(2 * "\"str1\"\"abc\"".length(), costs.get("str1").getBytes());
+    assertEquals(2, costs.get("listOfObjects").getCount());
+    assertEquals(6, costs.get("listOfObjects.val").getCount());
+    assertTrue(costs.get("listOfObjects").getBytes() > costs.get("listOfObjects.val").getBytes());
+    assertTrue(profiler.toString().contains("listOfObjects.val"));
+
+    SerializationProfiler never = new SerializationProfiler(0);
+    serializer.setProfiler(never);
+    try {
+      sut.writeValueAsString(JsonView.with(ref));
+    } finally {
+      serializer.setProfiler(null);
+    }
+    assertEquals(0, never.getSampleCount());
+    assertTrue(never.report().isEmpty());
+  }
+
+  @Test
+  public void testDecisionTrace() throws Exception {
+    TestObject ref = new TestObject();
+    ref.setStr1("str1");
+    ref.setStr2("str2");
+    ref.setIgnoredDirect("ignoredDirect");
+    ref.setSub(new TestSubobject("sub"));
+
+    DecisionTrace trace = new DecisionTrace();
+    sut.writeValueAsString(JsonView.with(ref)
+        .onClass(TestObject.class, match().exclude("str*").include("str1"))
+        .withTrace(trace));
+
+    DecisionTrace.Decision str1 = trace.forPath("str1").get(0);
+    assertTrue(str1.isWritten());
+    assertEquals("include \"str1\"", str1.getReason());
+    assertEquals(TestObject.class, str1.getDeclaringClass());
+    assertNotNull(str1.getMatch());
+    assertFalse(trace.forPath("str2").get(0).isWritten());
+    assertEquals("exclude \"str*\"", trace.forPath("str2").get(0).getReason());
+    assertEquals("@JsonIgnore", trace.forPath("ignoredDirect").get(0).getReason());
+    assertTrue(trace.forPath("sub.val").get(0).isWritten());
+    assertTrue(trace.toString().contains("str2 (TestObject): omitted"));
+  }
+
+  @Test
+  public void testAsyncProperties() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    serializer.setAsyncExecutor(executor);
+    try {
+      TestAsync.CALLS.set(0);
+      long start = System.nanoTime();
+      String serialized = sut.writeValueAsString(JsonView.with(new TestAsync("widget", 300))
+          .onClass(TestAsync.class, match().exclude("stock")));
+      long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+      Map<String, Object> obj = sut.readValue(serialized, NonReplacableKeyMap.class);
+      assertEquals("widget", obj.get("name"));
+      assertEquals("shipped", obj.get("status"));
+      assertEquals("9.99", obj.get("price"));
+      assertEquals("details", ((Map) obj.get("details")).get("val"));
+      assertFalse(obj.containsKey("stock"));
+      assertEquals(2, TestAsync.CALLS.get());
+      assertTrue("Lookups should run concurrently, took " + elapsedMillis + "ms", elapsedMillis < 550);
+
+      //each supplier is called once, however many views include it
+      TestAsync.CALLS.set(0);
+      TestAsync shared = new TestAsync("widget", 50);
+      List<JsonView<TestAsync>> views = asList(
+          JsonView.with(shared).onClass(TestAsync.class, match().exclude("stock")),
+          JsonView.with(shared).onClass(TestAsync.class, match().exclude("price")));
+      List<ByteArrayOutputStream> outs = asList(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+      serializer.writer(sut).write(views, outs);
+      assertEquals("9.99", sut.readValue(outs.get(0).toString("UTF-8"), NonReplacableKeyMap.class).get("price"));
+      assertEquals("12", sut.readValue(outs.get(1).toString("UTF-8"), NonReplacableKeyMap.class).get("stock"));
+      assertEquals(3, TestAsync.CALLS.get());
+
+      //futures handed over by the object are not the serializer's to cancel
+      serializer.setAsyncTimeout(Duration.ofMillis(50));
+      CompletableFuture<String> status = new CompletableFuture<>();
+      try {
+        sut.writeValueAsString(JsonView.with(new TestAsync("widget", 1_000, status)));
+        fail("Expected slow lookups to time out");
+      } catch(RuntimeException e) {
+        assertTrue(e.getMessage().contains("Timed out"));
+      }
+      assertFalse(status.isCancelled());
+    } finally {
+      serializer.setAsyncExecutor(null);
+      serializer.setAsyncTimeout(Duration.ofSeconds(30));
+      executor.shutdownNow();
+    }
+  }
+
 }
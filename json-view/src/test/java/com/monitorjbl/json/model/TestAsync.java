@@ -0,0 +1,57 @@
+package com.monitorjbl.json.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class TestAsync {
+  public static final AtomicInteger CALLS = new AtomicInteger();
+
+  private String name;
+  private CompletableFuture<String> status;
+  private Supplier<TestSubobject> details;
+  private Supplier<String> price;
+  private Supplier<String> stock;
+
+  public TestAsync(String name, long delayMillis) {
+    this(name, delayMillis, CompletableFuture.completedFuture("shipped"));
+  }
+
+  public TestAsync(String name, long delayMillis, CompletableFuture<String> status) {
+    this.name = name;
+    this.status = status;
+    this.details = () -> new TestSubobject(lookup("details", delayMillis));
+    this.price = () -> lookup("9.99", delayMillis);
+    this.stock = () -> lookup("12", delayMillis);
+  }
+
+  private static String lookup(String value, long delayMillis) {
+    CALLS.incrementAndGet();
+    try {
+      Thread.sleep(delayMillis);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return value;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public CompletableFuture<String> getStatus() {
+    return status;
+  }
+
+  public Supplier<TestSubobject> getDetails() {
+    return details;
+  }
+
+  public Supplier<String> getPrice() {
+    return price;
+  }
+
+  public Supplier<String> getStock() {
+    return stock;
+  }
+}
@@ -0,0 +1,127 @@
+package com.monitorjbl.json.model;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.monitorjbl.json.CacheableFragment;
+
+import java.util.List;
+
+public class TestFragment {
+
+  @CacheableFragment
+  public static class Currency {
+    private String code;
+    private String name;
+
+    public Currency(String code, String name) {
+      this.code = code;
+      this.name = name;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  @CacheableFragment(version = "version")
+  public static class Country {
+    private String name;
+    private int version;
+
+    public Country(String name, int version) {
+      this.name = name;
+      this.version = version;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+  }
+
+  @CacheableFragment(version = "version")
+  @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "code")
+  public static class Region {
+    private String code;
+    private String name;
+    private int version;
+
+    public Region(String code, String name, int version) {
+      this.code = code;
+      this.name = name;
+      this.version = version;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+  }
+
+  public static class Catalog {
+    private String id;
+    private Currency currency;
+    private Country country;
+    private Region region;
+    @CacheableFragment
+    private List<String> tags;
+
+    public String getId() {
+      return id;
+    }
+
+    public void setId(String id) {
+      this.id = id;
+    }
+
+    public Currency getCurrency() {
+      return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+      this.currency = currency;
+    }
+
+    public Country getCountry() {
+      return country;
+    }
+
+    public void setCountry(Country country) {
+      this.country = country;
+    }
+
+    public Region getRegion() {
+      return region;
+    }
+
+    public void setRegion(Region region) {
+      this.region = region;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    public void setTags(List<String> tags) {
+      this.tags = tags;
+    }
+  }
+}
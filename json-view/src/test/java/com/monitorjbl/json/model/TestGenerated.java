@@ -0,0 +1,98 @@
+package com.monitorjbl.json.model;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.monitorjbl.json.JsonViewModel;
+
+public class TestGenerated {
+
+  public static class GeneratedBase {
+    private String baseName;
+
+    public String getBaseName() {
+      return baseName;
+    }
+
+    public void setBaseName(String baseName) {
+      this.baseName = baseName;
+    }
+  }
+
+  @JsonViewModel
+  public static class GeneratedModel extends GeneratedBase {
+    private String name;
+    @JsonIgnore
+    private String secret;
+    private int count;
+    @JsonProperty("alias")
+    @JsonInclude(Include.NON_NULL)
+    private String nickname;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getSecret() {
+      return secret;
+    }
+
+    public void setSecret(String secret) {
+      this.secret = secret;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public String getNickname() {
+      return nickname;
+    }
+
+    public void setNickname(String nickname) {
+      this.nickname = nickname;
+    }
+
+    public String getDerived() {
+      return name + count;
+    }
+  }
+
+  //not annotated, so serialized through reflection
+  public static class ReflectedModel extends GeneratedModel {
+  }
+
+  @JsonViewModel
+  @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.PUBLIC_ONLY)
+  public static class GeneratedFields {
+    private String hidden;
+    public String shown;
+
+    public GeneratedFields(String hidden, String shown) {
+      this.hidden = hidden;
+      this.shown = shown;
+    }
+
+    String getPackagePrivate() {
+      return "not visible";
+    }
+  }
+
+  @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.PUBLIC_ONLY)
+  public static class ReflectedFields extends GeneratedFields {
+    public ReflectedFields(String hidden, String shown) {
+      super(hidden, shown);
+    }
+  }
+}
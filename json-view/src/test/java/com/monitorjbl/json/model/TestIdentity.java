@@ -0,0 +1,89 @@
+package com.monitorjbl.json.model;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.util.List;
+
+public class TestIdentity {
+
+  @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class)
+  public static class SequenceNode {
+    private String name;
+    private SequenceNode parent;
+    private List<SequenceNode> children;
+
+    public SequenceNode(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public SequenceNode getParent() {
+      return parent;
+    }
+
+    public void setParent(SequenceNode parent) {
+      this.parent = parent;
+    }
+
+    public List<SequenceNode> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<SequenceNode> children) {
+      this.children = children;
+    }
+  }
+
+  @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "code")
+  public static class PropertyNode {
+    private String code;
+    private String description;
+
+    public PropertyNode(String code, String description) {
+      this.code = code;
+      this.description = description;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+  }
+
+  public static class Holder {
+    private PropertyNode first;
+    private PropertyNode second;
+    private Holder self;
+
+    public PropertyNode getFirst() {
+      return first;
+    }
+
+    public void setFirst(PropertyNode first) {
+      this.first = first;
+    }
+
+    public PropertyNode getSecond() {
+      return second;
+    }
+
+    public void setSecond(PropertyNode second) {
+      this.second = second;
+    }
+
+    public Holder getSelf() {
+      return self;
+    }
+
+    public void setSelf(Holder self) {
+      this.self = self;
+    }
+  }
+}
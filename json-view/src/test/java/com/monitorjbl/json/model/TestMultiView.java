@@ -0,0 +1,63 @@
+package com.monitorjbl.json.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMultiView {
+
+  public static class Order {
+    public static final AtomicInteger READS = new AtomicInteger();
+
+    private long id;
+    private String secret;
+    private Customer customer;
+    private List<Customer> contacts;
+
+    public Order(long id, String secret, Customer customer, List<Customer> contacts) {
+      this.id = id;
+      this.secret = secret;
+      this.customer = customer;
+      this.contacts = contacts;
+    }
+
+    public long getId() {
+      READS.incrementAndGet();
+      return id;
+    }
+
+    public String getSecret() {
+      READS.incrementAndGet();
+      return secret;
+    }
+
+    public Customer getCustomer() {
+      READS.incrementAndGet();
+      return customer;
+    }
+
+    public List<Customer> getContacts() {
+      READS.incrementAndGet();
+      return contacts;
+    }
+  }
+
+  public static class Customer {
+    private String name;
+    private String email;
+
+    public Customer(String name, String email) {
+      this.name = name;
+      this.email = email;
+    }
+
+    public String getName() {
+      Order.READS.incrementAndGet();
+      return name;
+    }
+
+    public String getEmail() {
+      Order.READS.incrementAndGet();
+      return email;
+    }
+  }
+}
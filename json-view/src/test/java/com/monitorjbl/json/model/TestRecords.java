@@ -0,0 +1,48 @@
+package com.monitorjbl.json.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.monitorjbl.json.JsonViewModel;
+
+import java.util.List;
+
+public class TestRecords {
+
+  public record Person(String name, @JsonIgnore String password, int age, List<Address> addresses) {
+    public String getDisplayName() {
+      return "ignored, records only expose their components";
+    }
+  }
+
+  public record Address(String city, boolean primary) {
+  }
+
+  @JsonViewModel
+  public record GeneratedPerson(String name, @JsonIgnore String password, int age, List<Address> addresses) {
+  }
+
+  public static class Flags {
+    private boolean active;
+    private Boolean verified;
+
+    public Flags(boolean active, Boolean verified) {
+      this.active = active;
+      this.verified = verified;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public Boolean isVerified() {
+      return verified;
+    }
+
+    public String getVerified() {
+      return "get wins over is";
+    }
+
+    public String isNotABoolean() {
+      return "ignored";
+    }
+  }
+}
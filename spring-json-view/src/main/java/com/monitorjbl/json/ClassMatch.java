@@ -0,0 +1,29 @@
+package com.monitorjbl.json;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The fields to include and exclude for one class in a {@link ResponseView}. This is the
+ * declarative form of {@code onClass(cls, match().include(...).exclude(...))}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface ClassMatch {
+
+  /**
+   * The class to match
+   */
+  Class<?> value();
+
+  /**
+   * Fields to include, with the same patterns as {@link Match#include(String...)}
+   */
+  String[] include() default {};
+
+  /**
+   * Fields to exclude, with the same patterns as {@link Match#exclude(String...)}
+   */
+  String[] exclude() default {};
+}
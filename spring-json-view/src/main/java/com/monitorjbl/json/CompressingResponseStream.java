@@ -0,0 +1,129 @@
+package com.monitorjbl.json;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a response body compressed only if it turns out to be larger than a threshold.
+ * The first bytes are held back until the threshold is crossed, at which point the
+ * {@code Content-Encoding} header is set and everything is compressed; smaller bodies are
+ * written as they are. Handlers whose responses are known to be well above or below the
+ * threshold skip holding anything back.
+ */
+class CompressingResponseStream extends OutputStream {
+  private final HttpOutputMessage message;
+  private final String encoding;
+  private final SizeEstimate estimate;
+  private final DeflaterPool deflaters;
+  private final int bufferSize;
+
+  private byte[] pending;
+  private int pendingSize = 0;
+  private OutputStream target;
+  private PooledDeflaterOutputStream compressor;
+  private long written = 0;
+
+  CompressingResponseStream(HttpOutputMessage message, String encoding, int threshold, SizeEstimate estimate,
+                            DeflaterPool deflaters, int bufferSize) throws IOException {
+    this.message = message;
+    this.encoding = encoding;
+    this.estimate = estimate;
+    this.deflaters = deflaters;
+    this.bufferSize = bufferSize;
+
+    long expected = estimate.get();
+    if(expected >= 2L * threshold) {
+      startCompressed();
+    } else if(expected >= 0 && expected < threshold / 2) {
+      target = message.getBody();
+    } else {
+      pending = new byte[threshold];
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    written += len;
+    if(target == null) {
+      if(pendingSize + len <= pending.length) {
+        System.arraycopy(b, off, pending, pendingSize, len);
+        pendingSize += len;
+        return;
+      }
+      startCompressed();
+      target.write(pending, 0, pendingSize);
+    }
+    target.write(b, off, len);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    //nothing can be sent before deciding whether to compress
+    if(target != null) {
+      target.flush();
+    }
+  }
+
+  /**
+   * Writes whatever is still held back and completes the compressed stream
+   */
+  void finish() throws IOException {
+    if(target == null) {
+      target = message.getBody();
+      target.write(pending, 0, pendingSize);
+    }
+    if(compressor != null) {
+      compressor.finish();
+    }
+    target.flush();
+    estimate.record(written);
+  }
+
+  /**
+   * Returns the deflater to its pool, even if the response failed
+   */
+  void release() {
+    if(compressor != null) {
+      compressor.release();
+    }
+  }
+
+  private void startCompressed() throws IOException {
+    HttpHeaders headers = message.getHeaders();
+    headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+    headers.remove(HttpHeaders.CONTENT_LENGTH);
+
+    //a strong validator must differ between encodings of the same content
+    String etag = headers.getETag();
+    if(etag != null && !etag.startsWith("W/") && etag.endsWith("\"")) {
+      headers.setETag(etag.substring(0, etag.length() - 1) + "-" + encoding + "\"");
+    }
+
+    compressor = new PooledDeflaterOutputStream(message.getBody(), deflaters, "gzip".equals(encoding), bufferSize);
+    target = compressor;
+  }
+
+  /**
+   * Running average of the uncompressed size of one handler's responses
+   */
+  static class SizeEstimate {
+    private volatile long average = -1;
+
+    long get() {
+      return average;
+    }
+
+    void record(long size) {
+      long current = average;
+      average = current < 0 ? size : (current * 7 + size) / 8;
+    }
+  }
+}
@@ -1,9 +1,17 @@
 package com.monitorjbl.json;
 
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+
+import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Configures default serializer settings in a Spring environment. This is configured
@@ -11,11 +19,41 @@ import java.util.Map.Entry;
  */
 public class DefaultView {
   private final Map<Class, Match> matches;
+  private final Map<Class, Optional<Match>> resolvedClasses = new ConcurrentHashMap<>();
+  private final Map<MethodParameter, HandlerView> handlerViews = new ConcurrentHashMap<>();
 
   private DefaultView() {
     this.matches = new HashMap<>();
   }
 
+  /**
+   * Returns the default view for a value returned by a handler method, or null if no
+   * default applies. The classes a handler returns are worked out from its generic return
+   * type on its first invocation. When that type pins down the classes of every element,
+   * as with a {@code List} of a final class or record, the matches are resolved once and
+   * reused without looking at the returned value. Otherwise the value is scanned as in
+   * {@link #getMatch(Object)}, with the match for each class looked up only once.
+   *
+   * @param obj        The returned value
+   * @param returnType The return type of the handler method
+   * @return JsonView
+   */
+  @SuppressWarnings("unchecked")
+  public JsonView getMatch(Object obj, MethodParameter returnType) {
+    if(obj == null) {
+      return null;
+    }
+
+    Map<Class, Match> found = handlerViews.computeIfAbsent(returnType, HandlerView::new).matches(obj);
+    if(found.isEmpty()) {
+      return null;
+    }
+
+    JsonView<?> view = JsonView.with(obj);
+    found.forEach(view::onClass);
+    return view;
+  }
+
   @SuppressWarnings("unchecked")
   public JsonView getMatch(Object obj) {
     if(obj == null) {
@@ -63,9 +101,87 @@ public class DefaultView {
 
   public DefaultView onClass(Class cls, Match match) {
     matches.put(cls, match);
+    resolvedClasses.clear();
+    handlerViews.clear();
     return this;
   }
 
+  private Match resolve(Class cls) {
+    return resolvedClasses.computeIfAbsent(cls, c -> Optional.ofNullable(contains(c))).orElse(null);
+  }
+
+  private void addMatch(Map<Class, Match> found, Object value) {
+    if(value != null && !found.containsKey(value.getClass())) {
+      Match m = resolve(value.getClass());
+      if(m != null) {
+        found.put(value.getClass(), m);
+      }
+    }
+  }
+
+  /**
+   * The default matches for the values returned by one handler method
+   */
+  private class HandlerView {
+    //matches for every value the handler can return, or null if the value must be scanned
+    private final Map<Class, Match> fixed;
+    private final Class<?> container;
+
+    HandlerView(MethodParameter returnType) {
+      ResolvableType type = ResolvableType.forMethodParameter(returnType);
+      Class<?> raw = type.resolve(Object.class);
+      Class<?>[] elements;
+      if(Collection.class.isAssignableFrom(raw)) {
+        container = Collection.class;
+        elements = new Class<?>[]{type.asCollection().resolveGeneric(0)};
+      } else if(Map.class.isAssignableFrom(raw)) {
+        container = Map.class;
+        elements = new Class<?>[]{type.asMap().resolveGeneric(0), type.asMap().resolveGeneric(1)};
+      } else {
+        container = null;
+        elements = null;
+      }
+      this.fixed = elements != null ? fixedMatches(elements) : null;
+    }
+
+    private Map<Class, Match> fixedMatches(Class<?>[] elements) {
+      Map<Class, Match> found = new LinkedHashMap<>();
+      for(Class<?> element : elements) {
+        //subclasses of other types could have their own default matches
+        if(element == null || !Modifier.isFinal(element.getModifiers())) {
+          return null;
+        }
+        Match m = resolve(element);
+        if(m != null) {
+          found.put(element, m);
+        }
+      }
+      return Collections.unmodifiableMap(found);
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<Class, Match> matches(Object obj) {
+      if(fixed != null && container.isInstance(obj)) {
+        return fixed;
+      }
+
+      Map<Class, Match> found = new LinkedHashMap<>();
+      if(obj instanceof Collection) {
+        for(Object o : (Collection) obj) {
+          addMatch(found, o);
+        }
+      } else if(obj instanceof Map) {
+        for(Entry<Object, Object> e : ((Map<Object, Object>) obj).entrySet()) {
+          addMatch(found, e.getKey());
+          addMatch(found, e.getValue());
+        }
+      } else {
+        addMatch(found, obj);
+      }
+      return found;
+    }
+  }
+
   private Match contains(Class cls) {
     if(cls == null) {
       return null;
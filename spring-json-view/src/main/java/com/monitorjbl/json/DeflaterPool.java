@@ -0,0 +1,36 @@
+package com.monitorjbl.json;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of {@link Deflater}s at a fixed compression level. Deflaters hold native
+ * memory and are expensive to create, so responses borrow one and return it when done.
+ * Deflaters that don't fit back into the pool are released immediately.
+ */
+class DeflaterPool {
+  private final int level;
+  //raw deflate streams, wrapped in a gzip header and trailer by the caller
+  private final BlockingQueue<Deflater> raw;
+  //zlib streams, as used by the deflate content coding
+  private final BlockingQueue<Deflater> zlib;
+
+  DeflaterPool(int level, int maxSize) {
+    this.level = level;
+    this.raw = new ArrayBlockingQueue<>(maxSize);
+    this.zlib = new ArrayBlockingQueue<>(maxSize);
+  }
+
+  Deflater acquire(boolean nowrap) {
+    Deflater deflater = (nowrap ? raw : zlib).poll();
+    return deflater != null ? deflater : new Deflater(level, nowrap);
+  }
+
+  void release(Deflater deflater, boolean nowrap) {
+    deflater.reset();
+    if(!(nowrap ? raw : zlib).offer(deflater)) {
+      deflater.end();
+    }
+  }
+}
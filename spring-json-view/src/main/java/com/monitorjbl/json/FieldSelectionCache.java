@@ -0,0 +1,55 @@
+package com.monitorjbl.json;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache of compiled field selections. Selections are looked
+ * up by the expression as received, so repeated requests skip parsing entirely, and are
+ * shared between all expressions that normalize to the same selection.
+ */
+class FieldSelectionCache {
+  private final Map<String, FieldSelection> selections;
+
+  FieldSelectionCache(int maxSize) {
+    this.selections = new LinkedHashMap<String, FieldSelection>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, FieldSelection> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the compiled selection for the expression
+   *
+   * @throws IllegalArgumentException if the expression is malformed
+   */
+  FieldSelection compile(String expression) {
+    FieldSelection selection;
+    synchronized(selections) {
+      selection = selections.get(expression);
+    }
+    if(selection != null) {
+      return selection;
+    }
+
+    //parsed outside the lock, a concurrent miss on the same expression is harmless
+    FieldSelection parsed = FieldSelection.parse(expression);
+    synchronized(selections) {
+      selection = selections.get(parsed.toString());
+      if(selection == null) {
+        selection = parsed;
+        selections.put(parsed.toString(), selection);
+      }
+      selections.put(expression, selection);
+    }
+    return selection;
+  }
+
+  int size() {
+    synchronized(selections) {
+      return selections.size();
+    }
+  }
+}
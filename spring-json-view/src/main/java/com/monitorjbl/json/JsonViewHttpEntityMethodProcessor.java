@@ -10,9 +10,22 @@ import org.springframework.web.servlet.mvc.method.annotation.HttpEntityMethodPro
 import java.util.List;
 
 public class JsonViewHttpEntityMethodProcessor extends HttpEntityMethodProcessor {
+  private final ResponseViewCache responseViews = new ResponseViewCache();
+  private final RequestFieldSelection fieldSelection;
 
   public JsonViewHttpEntityMethodProcessor(List<HttpMessageConverter<?>> converters) {
+    this(converters, null, 0);
+  }
+
+  /**
+   * @param converters              The message converters to write with
+   * @param fieldSelectionParameter The request parameter holding a {@link FieldSelection}, or null to disable field selection
+   * @param maxCachedSelections     The maximum number of compiled selections to keep
+   */
+  public JsonViewHttpEntityMethodProcessor(List<HttpMessageConverter<?>> converters, String fieldSelectionParameter,
+                                           int maxCachedSelections) {
     super(converters);
+    this.fieldSelection = fieldSelectionParameter != null ? new RequestFieldSelection(fieldSelectionParameter, maxCachedSelections) : null;
   }
 
   @Override
@@ -25,6 +38,22 @@ public class JsonViewHttpEntityMethodProcessor extends HttpEntityMethodProcessor
       returnValue = ResponseEntity.status(re.getStatusCode())
           .headers(re.getHeaders())
           .body(json);
+    } else if(returnValue instanceof ResponseEntity) {
+      ResponseEntity re = (ResponseEntity) returnValue;
+      JsonView json = responseViews.apply(returnType, re.getBody());
+      if(json != null) {
+        returnValue = ResponseEntity.status(re.getStatusCode())
+            .headers(re.getHeaders())
+            .body(json);
+      }
+    }
+
+    FieldSelection selection = fieldSelection != null ? fieldSelection.get(webRequest) : null;
+    if(selection != null && returnValue instanceof ResponseEntity && ((ResponseEntity) returnValue).getBody() != null) {
+      ResponseEntity re = (ResponseEntity) returnValue;
+      returnValue = ResponseEntity.status(re.getStatusCode())
+          .headers(re.getHeaders())
+          .body(RequestFieldSelection.apply(re.getBody(), selection));
     }
 
     super.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
@@ -1,17 +1,49 @@
 package com.monitorjbl.json;
 
+import jakarta.servlet.http.HttpServletRequest;
 import tools.jackson.databind.ValueSerializer;
 import tools.jackson.databind.json.JsonMapper;
 import tools.jackson.databind.module.SimpleModule;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.Deflater;
 
 public class JsonViewMessageConverter extends JacksonJsonHttpMessageConverter {
 
   private JsonViewSerializer serializer = new JsonViewSerializer();
+  private boolean conditionalResponses = false;
+  private Function<Object, Object> versionSupplier;
+  private boolean compression = false;
+  private int compressionThreshold = 2048;
+  private int compressionBufferSize = 8192;
+  private DeflaterPool deflaters = newDeflaterPool(Deflater.DEFAULT_COMPRESSION);
+  private final Map<Object, CompressingResponseStream.SizeEstimate> responseSizes = new ConcurrentHashMap<>();
 
   public JsonViewMessageConverter() {
     super(createMapper(new JsonViewSerializer()));
@@ -65,9 +97,339 @@ public class JsonViewMessageConverter extends JacksonJsonHttpMessageConverter {
     this.serializer.unregisterCustomSerializer(class1);
   }
 
+  /**
+   * Enables {@code ETag} headers on successful responses to {@code GET} and {@code HEAD}
+   * requests. When the request carries a matching {@code If-None-Match} header, the
+   * response is answered with {@code 304 Not Modified} and no body.<br>
+   * Unless a version supplier provides a tag, the tag is a SHA-256 hash of the serialized
+   * body. The body is buffered in memory while it is hashed, and only written once the
+   * tag is compared, so each response is serialized once.
+   *
+   * @param conditionalResponses Whether to support conditional responses
+   */
+  public void setConditionalResponses(boolean conditionalResponses) {
+    this.conditionalResponses = conditionalResponses;
+  }
+
+  /**
+   * Sets a function that returns a cheap version for a response value, such as a
+   * revision number or last modified timestamp. When it returns a non-null version, a weak
+   * {@code ETag} is derived from it and unchanged responses are answered without
+   * serializing at all. When it returns null, the content hash is used instead. The tag
+   * also covers the view's matches and field selection, so different projections of the
+   * same version get different tags.<br>
+   * The function receives the value wrapped by the {@link JsonView}, or the response
+   * value itself if it is not a view. Only used if conditional responses are enabled.
+   *
+   * @param versionSupplier The function returning a version, or null for none
+   */
+  public void setVersionSupplier(Function<Object, Object> versionSupplier) {
+    this.versionSupplier = versionSupplier;
+  }
+
+  /**
+   * Compresses response bodies with {@code gzip} or {@code deflate} when the request's
+   * {@code Accept-Encoding} header allows it. Only bodies larger than the compression
+   * threshold are compressed; the size of each handler's responses is tracked so that
+   * handlers with consistently large or small responses start writing right away, while
+   * others hold back up to the threshold before deciding.<br>
+   * Deflaters are pooled, so this is cheaper than a compressing servlet filter. Responses
+   * that already have a {@code Content-Encoding} are left alone.
+   *
+   * @param compression Whether to compress responses
+   */
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Sets the uncompressed size in bytes above which responses are compressed. Defaults to
+   * 2048. Only used if compression is enabled.
+   *
+   * @param compressionThreshold The size in bytes
+   */
+  public void setCompressionThreshold(int compressionThreshold) {
+    if(compressionThreshold < 0) {
+      throw new IllegalArgumentException("Compression threshold must not be negative");
+    }
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /**
+   * Sets the deflate compression level, from 1 (fastest) to 9 (smallest). Defaults to
+   * {@link Deflater#DEFAULT_COMPRESSION}. Only used if compression is enabled.
+   *
+   * @param compressionLevel The compression level
+   */
+  public void setCompressionLevel(int compressionLevel) {
+    if(compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < 1 || compressionLevel > 9)) {
+      throw new IllegalArgumentException("Compression level must be between 1 and 9");
+    }
+    this.deflaters = newDeflaterPool(compressionLevel);
+  }
+
+  /**
+   * Sets the size of the buffer compressed output is collected in before it is written to
+   * the response. Defaults to 8192. Only used if compression is enabled.
+   *
+   * @param compressionBufferSize The size in bytes
+   */
+  public void setCompressionBufferSize(int compressionBufferSize) {
+    if(compressionBufferSize <= 0) {
+      throw new IllegalArgumentException("Compression buffer size must be positive");
+    }
+    this.compressionBufferSize = compressionBufferSize;
+  }
+
   @Override
   protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
     super.writeInternal(object, outputMessage);
   }
 
+  @Override
+  protected void writeInternal(Object object, ResolvableType resolvableType, HttpOutputMessage outputMessage, Map<String, Object> hints)
+      throws IOException, HttpMessageNotWritableException {
+    String encoding = acceptedEncoding(outputMessage);
+    HttpServletRequest request = conditionalRequest(outputMessage);
+    if(request == null) {
+      writeBody(object, resolvableType, outputMessage, hints, encoding);
+      return;
+    }
+
+    String etag = versionTag(object);
+    if(etag != null) {
+      outputMessage.getHeaders().setETag(etag);
+      if(matchesIfNoneMatch(request, etag)) {
+        ((ServletServerHttpResponse) outputMessage).setStatusCode(HttpStatus.NOT_MODIFIED);
+      } else {
+        writeBody(object, resolvableType, outputMessage, hints, encoding);
+      }
+      return;
+    }
+
+    //hash the body while buffering it, so it is only serialized once
+    MessageDigest digest = newDigest();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    super.writeInternal(object, resolvableType, withBody(outputMessage, new DigestOutputStream(buffer, digest)), hints);
+    etag = encodeTag(digest);
+    outputMessage.getHeaders().setETag(etag);
+
+    if(matchesIfNoneMatch(request, etag)) {
+      ((ServletServerHttpResponse) outputMessage).setStatusCode(HttpStatus.NOT_MODIFIED);
+    } else {
+      writeBody(object, outputMessage, encoding, message -> buffer.writeTo(message.getBody()));
+    }
+  }
+
+  private void writeBody(Object object, ResolvableType resolvableType, HttpOutputMessage outputMessage, Map<String, Object> hints,
+                         String encoding) throws IOException {
+    writeBody(object, outputMessage, encoding, message -> super.writeInternal(object, resolvableType, message, hints));
+  }
+
+  private void writeBody(Object object, HttpOutputMessage outputMessage, String encoding, BodyWriter writer) throws IOException {
+    if(encoding == null) {
+      writer.write(outputMessage);
+      return;
+    }
+
+    CompressingResponseStream.SizeEstimate estimate = responseSizes.computeIfAbsent(handlerKey(object), k -> new CompressingResponseStream.SizeEstimate());
+    CompressingResponseStream body = new CompressingResponseStream(outputMessage, encoding, compressionThreshold, estimate, deflaters,
+        compressionBufferSize);
+    try {
+      writer.write(withBody(outputMessage, body));
+      body.finish();
+    } finally {
+      body.release();
+    }
+  }
+
+  /**
+   * Returns the content coding to compress the response with, or null to leave it
+   * uncompressed. Prefers {@code gzip} over {@code deflate} when both are equally acceptable.
+   */
+  private String acceptedEncoding(HttpOutputMessage outputMessage) {
+    if(!compression || !(outputMessage instanceof ServletServerHttpResponse) || outputMessage.getHeaders().containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+      return null;
+    }
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if(!(attributes instanceof ServletRequestAttributes)) {
+      return null;
+    }
+    outputMessage.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+    double gzip = -1, deflate = -1, any = -1;
+    Enumeration<String> headers = ((ServletRequestAttributes) attributes).getRequest().getHeaders(HttpHeaders.ACCEPT_ENCODING);
+    while(headers.hasMoreElements()) {
+      for(String coding : headers.nextElement().split(",")) {
+        String[] parts = coding.split(";");
+        String name = parts[0].trim().toLowerCase(Locale.ROOT);
+        double quality = quality(parts);
+        if(name.equals("gzip") || name.equals("x-gzip")) {
+          gzip = quality;
+        } else if(name.equals("deflate")) {
+          deflate = quality;
+        } else if(name.equals("*")) {
+          any = quality;
+        }
+      }
+    }
+    gzip = gzip < 0 ? any : gzip;
+    deflate = deflate < 0 ? any : deflate;
+
+    if(gzip > 0 && gzip >= deflate) {
+      return "gzip";
+    }
+    return deflate > 0 ? "deflate" : null;
+  }
+
+  private static double quality(String[] parts) {
+    for(int i = 1; i < parts.length; i++) {
+      String param = parts[i].trim();
+      if(param.startsWith("q=")) {
+        try {
+          return Double.parseDouble(param.substring(2));
+        } catch(NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Returns the key response sizes are tracked under: the handler method if known,
+   * otherwise the type of the response value
+   */
+  private static Object handlerKey(Object object) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    Object handler = attributes == null ? null : attributes.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if(handler instanceof HandlerMethod) {
+      return ((HandlerMethod) handler).getMethod();
+    }
+    Object value = object instanceof JsonView ? ((JsonView<?>) object).getValue() : object;
+    return value == null ? Void.class : value.getClass();
+  }
+
+  private interface BodyWriter {
+    void write(HttpOutputMessage message) throws IOException;
+  }
+
+  private static DeflaterPool newDeflaterPool(int level) {
+    return new DeflaterPool(level, Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  /**
+   * Returns the current request if the response may be answered conditionally, otherwise null
+   */
+  private HttpServletRequest conditionalRequest(HttpOutputMessage outputMessage) {
+    if(!conditionalResponses || !(outputMessage instanceof ServletServerHttpResponse) || outputMessage.getHeaders().getETag() != null) {
+      return null;
+    }
+
+    int status = ((ServletServerHttpResponse) outputMessage).getServletResponse().getStatus();
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if(status < 200 || status >= 300 || !(attributes instanceof ServletRequestAttributes)) {
+      return null;
+    }
+
+    HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+    String method = request.getMethod();
+    return "GET".equals(method) || "HEAD".equals(method) ? request : null;
+  }
+
+  private String versionTag(Object object) {
+    if(versionSupplier == null) {
+      return null;
+    }
+
+    Object version = versionSupplier.apply(object instanceof JsonView ? ((JsonView<?>) object).getValue() : object);
+    if(version == null) {
+      return null;
+    }
+
+    MessageDigest digest = newDigest();
+    digest.update(version.toString().getBytes(StandardCharsets.UTF_8));
+    if(object instanceof JsonView) {
+      digest.update(describeView((JsonView<?>) object).getBytes(StandardCharsets.UTF_8));
+    }
+    return "W/" + encodeTag(digest);
+  }
+
+  /**
+   * Describes everything about a view that changes which fields are written. Classes and
+   * patterns are sorted, so the description is the same on every instance of the
+   * application. Transforms are identified by the fields they apply to.
+   */
+  private static String describeView(JsonView<?> view) {
+    StringBuilder builder = new StringBuilder();
+    Map<String, Match> matches = new TreeMap<>();
+    view.matches.forEach((cls, match) -> matches.put(cls.getName(), match));
+    matches.forEach((cls, match) -> {
+      builder.append('\n').append(cls);
+      if(match != null) {
+        builder.append(" include=").append(new TreeSet<>(match.getIncludes()))
+            .append(" exclude=").append(new TreeSet<>(match.getExcludes()))
+            .append(" transform=").append(new TreeSet<>(match.getTransforms().keySet()))
+            .append(" window=").append(new TreeMap<>(match.getWindows()));
+      }
+    });
+    builder.append("\nbehavior=").append(view.matcherBehavior);
+    builder.append("\nfields=").append(view.getFieldSelection());
+    return builder.toString();
+  }
+
+  private static HttpOutputMessage withBody(HttpOutputMessage outputMessage, OutputStream body) {
+    return new HttpOutputMessage() {
+      @Override
+      public OutputStream getBody() {
+        return body;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return outputMessage.getHeaders();
+      }
+    };
+  }
+
+  private static boolean matchesIfNoneMatch(HttpServletRequest request, String etag) {
+    String opaqueTag = opaqueTag(etag);
+    Enumeration<String> headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+    while(headers.hasMoreElements()) {
+      for(String candidate : headers.nextElement().split(",")) {
+        candidate = candidate.trim();
+        if(candidate.equals("*") || opaqueTag(candidate).equals(opaqueTag)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Strips the weakness indicator, as {@code If-None-Match} uses weak comparison, and the
+   * content coding added to the tags of compressed responses
+   */
+  private static String opaqueTag(String etag) {
+    String tag = etag.startsWith("W/") ? etag.substring(2) : etag;
+    for(String coding : new String[]{"-gzip\"", "-deflate\""}) {
+      if(tag.endsWith(coding)) {
+        return tag.substring(0, tag.length() - coding.length()) + '"';
+      }
+    }
+    return tag;
+  }
+
+  private static String encodeTag(MessageDigest digest) {
+    return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + '"';
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch(NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
 }
\ No newline at end of file
@@ -15,10 +15,24 @@ public class JsonViewReturnValueHandler implements HandlerMethodReturnValueHandl
 
   private final HandlerMethodReturnValueHandler delegate;
   private final DefaultView defaultView;
+  private final RequestFieldSelection fieldSelection;
+  private final ResponseViewCache responseViews = new ResponseViewCache();
 
   public JsonViewReturnValueHandler(List<HttpMessageConverter<?>> converters, DefaultView defaultView) {
+    this(converters, defaultView, null, 0);
+  }
+
+  /**
+   * @param converters              The message converters to write with
+   * @param defaultView             The default view to apply when none is provided
+   * @param fieldSelectionParameter The request parameter holding a {@link FieldSelection}, or null to disable field selection
+   * @param maxCachedSelections     The maximum number of compiled selections to keep
+   */
+  public JsonViewReturnValueHandler(List<HttpMessageConverter<?>> converters, DefaultView defaultView,
+                                    String fieldSelectionParameter, int maxCachedSelections) {
     this.delegate = new JsonViewResponseProcessor(converters);
     this.defaultView = defaultView;
+    this.fieldSelection = fieldSelectionParameter != null ? new RequestFieldSelection(fieldSelectionParameter, maxCachedSelections) : null;
   }
 
   @Override
@@ -33,15 +47,25 @@ public class JsonViewReturnValueHandler implements HandlerMethodReturnValueHandl
       val = JsonResultRetriever.retrieve();
       log.debug("Found [" + ((JsonView) val).getValue().getClass() + "] to serialize");
     } else {
-      JsonView view = defaultView.getMatch(val);
+      JsonView view = responseViews.apply(returnType, val);
+      if(view == null) {
+        view = defaultView.getMatch(val, returnType);
+      }
+
       if(view != null) {
         val = view;
-        log.debug("Default view found for " + val.getClass().getCanonicalName() + ", applied before serialization");
+        log.debug("Declared or default view found for " + val.getClass().getCanonicalName() + ", applied before serialization");
       } else {
         log.debug("No JsonView found for thread, using returned value");
       }
     }
 
+    FieldSelection selection = fieldSelection != null ? fieldSelection.get(webRequest) : null;
+    if(selection != null && val != null) {
+      val = RequestFieldSelection.apply(val, selection);
+      log.debug("Field selection [" + selection + "] applied before serialization");
+    }
+
     delegate.handleReturnValue(val, returnType, mavContainer, webRequest);
   }
 
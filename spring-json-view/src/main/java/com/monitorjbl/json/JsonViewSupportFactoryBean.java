@@ -3,6 +3,7 @@ package com.monitorjbl.json;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,8 @@ public class JsonViewSupportFactoryBean implements InitializingBean {
 
   protected final JsonViewMessageConverter converter;
   protected final DefaultView defaultView;
+  protected String fieldSelectionParameter;
+  protected int maxCachedFieldSelections = 256;
 
   public JsonViewSupportFactoryBean() {
     this(JsonMapper.builder().build());
@@ -80,15 +83,85 @@ public class JsonViewSupportFactoryBean implements InitializingBean {
     for(HandlerMethodReturnValueHandler handler : handlers) {
       int index = handlers.indexOf(handler);
       if(handler instanceof ResponseEntityReturnValueHandler) {
-        handlers.set(index, new JsonViewHttpEntityMethodProcessor(converters));
+        handlers.set(index, new JsonViewHttpEntityMethodProcessor(converters, fieldSelectionParameter, maxCachedFieldSelections));
       } else if(handler instanceof RequestResponseBodyMethodProcessor) {
-        handlers.set(index, new JsonViewReturnValueHandler(converters, defaultView));
+        handlers.set(index, new JsonViewReturnValueHandler(converters, defaultView, fieldSelectionParameter, maxCachedFieldSelections));
         break;
       }
     }
   }
 
 
+  /**
+   * Enables {@code ETag} headers and {@code 304 Not Modified} responses for {@code GET}
+   * and {@code HEAD} requests. @see JsonViewMessageConverter#setConditionalResponses
+   *
+   * @param conditionalResponses Whether to support conditional responses
+   */
+  public void setConditionalResponses(boolean conditionalResponses) {
+    this.converter.setConditionalResponses(conditionalResponses);
+  }
+
+  /**
+   * Sets a function that returns a cheap version for a response value, letting unchanged
+   * responses skip serialization. @see JsonViewMessageConverter#setVersionSupplier
+   *
+   * @param versionSupplier The function returning a version, or null for none
+   */
+  public void setVersionSupplier(Function<Object, Object> versionSupplier) {
+    this.converter.setVersionSupplier(versionSupplier);
+  }
+
+  /**
+   * Compresses large responses with {@code gzip} or {@code deflate} when the client
+   * accepts it. @see JsonViewMessageConverter#setCompression
+   *
+   * @param compression Whether to compress responses
+   */
+  public void setCompression(boolean compression) {
+    this.converter.setCompression(compression);
+  }
+
+  /**
+   * Sets the uncompressed size in bytes above which responses are compressed.
+   * @see JsonViewMessageConverter#setCompressionThreshold
+   *
+   * @param compressionThreshold The size in bytes
+   */
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.converter.setCompressionThreshold(compressionThreshold);
+  }
+
+  /**
+   * Sets the deflate compression level. @see JsonViewMessageConverter#setCompressionLevel
+   *
+   * @param compressionLevel The compression level, from 1 to 9
+   */
+  public void setCompressionLevel(int compressionLevel) {
+    this.converter.setCompressionLevel(compressionLevel);
+  }
+
+  /**
+   * Enables field selection through the given request parameter, such as
+   * {@code ?fields=id,name,orders(id,total)}. Selections can only narrow the view a
+   * response would otherwise be written with. Malformed selections are rejected with
+   * {@code 400 Bad Request}. @see FieldSelection
+   *
+   * @param fieldSelectionParameter The name of the request parameter, or null to disable field selection
+   */
+  public void setFieldSelectionParameter(String fieldSelectionParameter) {
+    this.fieldSelectionParameter = fieldSelectionParameter;
+  }
+
+  /**
+   * Sets how many compiled field selections are cached. Defaults to 256.
+   *
+   * @param maxCachedFieldSelections The maximum number of cached selections
+   */
+  public void setMaxCachedFieldSelections(int maxCachedFieldSelections) {
+    this.maxCachedFieldSelections = maxCachedFieldSelections;
+  }
+
   /**
    * Registering custom serializer allows to the JSonView to deal with custom serializations for certains field types.<br>
    * This way you could register for instance a JODA serialization as  a DateTimeSerializer. <br>
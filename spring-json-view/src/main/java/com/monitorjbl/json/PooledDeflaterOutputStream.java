@@ -0,0 +1,76 @@
+package com.monitorjbl.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses into a stream with a deflater borrowed from a {@link DeflaterPool}, writing
+ * either the gzip or the zlib format. The deflater is returned to the pool once the
+ * stream is finished. Closing this stream does not close the underlying stream.
+ */
+class PooledDeflaterOutputStream extends DeflaterOutputStream {
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final DeflaterPool pool;
+  private final boolean gzip;
+  private final CRC32 crc = new CRC32();
+  private boolean released = false;
+
+  PooledDeflaterOutputStream(OutputStream out, DeflaterPool pool, boolean gzip, int bufferSize) throws IOException {
+    super(out, pool.acquire(gzip), bufferSize);
+    this.pool = pool;
+    this.gzip = gzip;
+    if(gzip) {
+      out.write(GZIP_HEADER);
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    super.write(b, off, len);
+    if(gzip) {
+      crc.update(b, off, len);
+    }
+  }
+
+  @Override
+  public void finish() throws IOException {
+    if(released) {
+      return;
+    }
+    try {
+      super.finish();
+      if(gzip) {
+        writeInt((int) crc.getValue());
+        writeInt((int) def.getBytesRead());
+      }
+    } finally {
+      release();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    out.flush();
+  }
+
+  /**
+   * Returns the deflater to the pool, if that hasn't happened yet
+   */
+  void release() {
+    if(!released) {
+      released = true;
+      pool.release(def, gzip);
+    }
+  }
+
+  private void writeInt(int value) throws IOException {
+    out.write(value & 0xff);
+    out.write((value >> 8) & 0xff);
+    out.write((value >> 16) & 0xff);
+    out.write((value >> 24) & 0xff);
+  }
+}
@@ -0,0 +1,52 @@
+package com.monitorjbl.json;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Applies the {@link FieldSelection} a client sends in a request parameter. The requested
+ * fields are intersected with any selection the view already has, so a client can narrow
+ * what a controller returns but never widen it.
+ */
+class RequestFieldSelection {
+  private final String parameter;
+  private final FieldSelectionCache selections;
+
+  /**
+   * @param parameter           The request parameter holding the selection
+   * @param maxCachedSelections The maximum number of compiled selections to keep
+   */
+  RequestFieldSelection(String parameter, int maxCachedSelections) {
+    this.parameter = parameter;
+    this.selections = new FieldSelectionCache(maxCachedSelections);
+  }
+
+  /**
+   * Returns the selection sent with the request, or null if there was none
+   *
+   * @throws ResponseStatusException with {@code 400 Bad Request} if the selection is malformed
+   */
+  FieldSelection get(NativeWebRequest webRequest) {
+    String expression = webRequest.getParameter(parameter);
+    if(expression == null) {
+      return null;
+    }
+
+    try {
+      return selections.compile(expression);
+    } catch(IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Narrows the value to the selection, wrapping it in a view if it isn't one
+   */
+  @SuppressWarnings("unchecked")
+  static JsonView apply(Object value, FieldSelection selection) {
+    JsonView view = value instanceof JsonView ? (JsonView) value : JsonView.with(value);
+    FieldSelection narrowed = FieldSelection.intersect(view.getFieldSelection(), selection);
+    return view.isFrozen() ? view.withValue(view.getValue(), narrowed) : view.withFieldSelection(narrowed);
+  }
+}
@@ -0,0 +1,35 @@
+package com.monitorjbl.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the view a controller method's return value is written with, for methods whose
+ * view never changes between requests:
+ * <pre>
+ * &#64;ResponseView(&#64;ClassMatch(value = MyObject.class, exclude = "contains"))
+ * public List&lt;MyObject&gt; list() { ... }
+ * </pre>
+ * The annotation is compiled into a view the first time the method is called, and that
+ * view is reused for every later response. A view set with {@link JsonResult} takes
+ * precedence, and a declared view replaces any {@link DefaultView}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ResponseView {
+
+  /**
+   * The matches to apply, one per class
+   */
+  ClassMatch[] value();
+
+  /**
+   * The matcher behavior to use. Leave empty to use the serializer's default; at most one
+   * behavior may be given.
+   */
+  MatcherBehavior[] behavior() default {};
+}
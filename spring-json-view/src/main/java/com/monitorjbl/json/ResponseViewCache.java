@@ -0,0 +1,52 @@
+package com.monitorjbl.json;
+
+import org.springframework.core.MethodParameter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Views declared with {@link ResponseView}, compiled once per handler method. The compiled
+ * views are frozen and hold no value; each response gets a copy sharing their matches.
+ */
+class ResponseViewCache {
+  private final Map<MethodParameter, Optional<JsonView<Object>>> views = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the declared view applied to the value, or null if the method declares none
+   */
+  JsonView<Object> apply(MethodParameter returnType, Object value) {
+    if(value == null) {
+      return null;
+    }
+    return views.computeIfAbsent(returnType, ResponseViewCache::compile)
+        .map(view -> view.withValue(value))
+        .orElse(null);
+  }
+
+  static Optional<JsonView<Object>> compile(MethodParameter returnType) {
+    ResponseView annotation = returnType.getMethodAnnotation(ResponseView.class);
+    if(annotation == null) {
+      return Optional.empty();
+    }
+    if(annotation.behavior().length > 1) {
+      throw new IllegalArgumentException("At most one matcher behavior can be declared on " + returnType.getMethod());
+    }
+
+    Map<Class<?>, Match> matches = new LinkedHashMap<>();
+    for(ClassMatch classMatch : annotation.value()) {
+      matches.computeIfAbsent(classMatch.value(), c -> Match.match())
+          .include(classMatch.include())
+          .exclude(classMatch.exclude());
+    }
+
+    JsonView<Object> view = JsonView.<Object>with(null);
+    matches.forEach(view::onClass);
+    if(annotation.behavior().length == 1) {
+      view.withMatcherBehavior(annotation.behavior()[0]);
+    }
+    return Optional.of(view.freeze());
+  }
+}
@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.ServerSocket;
 import java.net.URL;
 import java.util.ArrayList;
@@ -23,10 +24,15 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public abstract class ConfigTest {
 
@@ -218,6 +224,194 @@ public abstract class ConfigTest {
     assertNull(map.get("myobj").get("ignoredString"));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDefaultViewSupportWithFinalElements() throws Exception {
+    for(int i = 0; i < 2; i++) {
+      HttpResponse response = Request.Get("http://localhost:" + port + "/defaultViewRecords").execute().returnResponse();
+      List<Map<String, Object>> list = new ObjectMapper().readValue(response.getEntity().getContent(), ArrayList.class);
+
+      assertEquals(2, list.size());
+      assertEquals(4, list.get(0).get("id"));
+      assertEquals("otherName", list.get(1).get("name"));
+      assertFalse(list.get(0).containsKey("ignoredString"));
+      assertFalse(list.get(1).containsKey("ignoredString"));
+    }
+  }
+
+  @Test
+  public void testConditionalResponse_contentHash() throws Exception {
+    HttpResponse first = Request.Get("http://localhost:" + port + "/bean").execute().returnResponse();
+    String etag = first.getFirstHeader("ETag").getValue();
+    assertEquals(200, first.getStatusLine().getStatusCode());
+    assertTrue(etag.startsWith("\""));
+
+    HttpResponse second = Request.Get("http://localhost:" + port + "/bean").execute().returnResponse();
+    assertEquals(etag, second.getFirstHeader("ETag").getValue());
+
+    HttpResponse notModified = Request.Get("http://localhost:" + port + "/bean")
+        .addHeader("If-None-Match", "\"stale\", " + etag)
+        .execute().returnResponse();
+    assertEquals(304, notModified.getStatusLine().getStatusCode());
+    assertEquals(etag, notModified.getFirstHeader("ETag").getValue());
+    assertNull(notModified.getEntity());
+
+    HttpResponse modified = Request.Get("http://localhost:" + port + "/bean")
+        .addHeader("If-None-Match", "\"stale\"")
+        .execute().returnResponse();
+    assertEquals(200, modified.getStatusLine().getStatusCode());
+  }
+
+  @Test
+  public void testConditionalResponse_versionSupplier() throws Exception {
+    HttpResponse first = Request.Get("http://localhost:" + port + "/defaultView").execute().returnResponse();
+    String etag = first.getFirstHeader("ETag").getValue();
+    assertTrue(etag.startsWith("W/\""));
+
+    HttpResponse notModified = Request.Get("http://localhost:" + port + "/defaultView")
+        .addHeader("If-None-Match", etag)
+        .execute().returnResponse();
+    assertEquals(304, notModified.getStatusLine().getStatusCode());
+
+    //the same version under a different projection is a different representation
+    HttpResponse projected = Request.Get("http://localhost:" + port + "/defaultView?fields=id")
+        .addHeader("If-None-Match", etag)
+        .execute().returnResponse();
+    assertEquals(200, projected.getStatusLine().getStatusCode());
+    assertNotEquals(etag, projected.getFirstHeader("ETag").getValue());
+  }
+
+  @Test
+  public void testConditionalResponse_notForPost() throws Exception {
+    HttpResponse response = Request.Post("http://localhost:" + port + "/bean").bodyString(
+        "{\"date\":\"1433214360187\",\"str1\":\"test\"}", ContentType.APPLICATION_JSON)
+        .addHeader("If-None-Match", "*")
+        .execute().returnResponse();
+    assertEquals(200, response.getStatusLine().getStatusCode());
+    assertNull(response.getFirstHeader("ETag"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFieldSelection() throws Exception {
+    String json = Request.Get("http://localhost:" + port + "/bean?fields=str2,int1,ignoredDirect,sub(val)").execute().returnContent().asString();
+    Map<String, Object> map = new ObjectMapper().readValue(json, HashMap.class);
+
+    assertEquals(3, map.size());
+    assertEquals("asdf", map.get("str2"));
+    assertEquals("ignored", map.get("ignoredDirect"));
+    assertEquals("qwerqwerqwerqw", ((Map<String, Object>) map.get("sub")).get("val"));
+    assertEquals(1, ((Map<String, Object>) map.get("sub")).size());
+    assertNull(map.get("int1"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFieldSelectionWithDefaultView() throws Exception {
+    String json = Request.Get("http://localhost:" + port + "/defaultView?fields=name,ignoredString").execute().returnContent().asString();
+    Map<String, Object> map = new ObjectMapper().readValue(json, HashMap.class);
+
+    assertEquals(1, map.size());
+    assertEquals("someName", map.get("name"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFieldSelection_cannotWiden() throws Exception {
+    String json = Request.Get("http://localhost:" + port + "/bean/narrowed?fields=str2,int1,list,sub(val)").execute().returnContent().asString();
+    Map<String, Object> map = new ObjectMapper().readValue(json, HashMap.class);
+
+    assertEquals(2, map.size());
+    assertEquals("asdf", map.get("str2"));
+    assertEquals("qwerqwerqwerqw", ((Map<String, Object>) map.get("sub")).get("val"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFieldSelectionWithResponseEntity() throws Exception {
+    HttpResponse response = Request.Get("http://localhost:" + port + "/responseEntity?fields=str2,int1").execute().returnResponse();
+    Map<String, Object> map = new ObjectMapper().readValue(response.getEntity().getContent(), HashMap.class);
+
+    assertEquals(202, response.getStatusLine().getStatusCode());
+    assertEquals("asdfasdf", response.getFirstHeader("TEST").getValue());
+    assertEquals(1, map.size());
+    assertEquals("qwerqwer", map.get("str2"));
+  }
+
+  @Test
+  public void testFieldSelection_malformed() throws Exception {
+    HttpResponse response = Request.Get("http://localhost:" + port + "/defaultView?fields=name(").execute().returnResponse();
+    assertEquals(400, response.getStatusLine().getStatusCode());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDeclaredView() throws Exception {
+    for(int i = 0; i < 2; i++) {
+      Map<String, Object> map = new ObjectMapper().readValue(Request.Get("http://localhost:" + port + "/declaredView").execute().returnContent().asStream(), HashMap.class);
+      assertEquals("ignored", map.get("ignoredDirect"));
+      assertEquals("asdf", map.get("str2"));
+      assertFalse(map.containsKey("int1"));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDeclaredViewWithFieldSelection() throws Exception {
+    String json = Request.Get("http://localhost:" + port + "/declaredView?fields=str2,int1").execute().returnContent().asString();
+    Map<String, Object> map = new ObjectMapper().readValue(json, HashMap.class);
+
+    assertEquals(1, map.size());
+    assertEquals("asdf", map.get("str2"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDeclaredViewWithResponseEntity() throws Exception {
+    HttpResponse response = Request.Get("http://localhost:" + port + "/declaredView/responseEntity").execute().returnResponse();
+    Map<String, Object> map = new ObjectMapper().readValue(response.getEntity().getContent(), HashMap.class);
+
+    assertEquals(202, response.getStatusLine().getStatusCode());
+    assertEquals(1, map.size());
+    assertFalse(((Map<String, Object>) map.get("sub")).containsKey("val"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCompression() throws Exception {
+    //repeated to also cover writing once the response size has been learned
+    for(int i = 0; i < 3; i++) {
+      HttpURLConnection gzip = open("/compressed", "gzip;q=0.8, deflate;q=0.5");
+      assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+      List<Map<String, Object>> list = new ObjectMapper().readValue(new GZIPInputStream(gzip.getInputStream()), ArrayList.class);
+      assertEquals(100, list.size());
+      assertEquals(2, list.get(0).size());
+      assertEquals("value 0", list.get(0).get("str2"));
+
+      HttpURLConnection deflate = open("/compressed", "gzip;q=0, deflate");
+      assertEquals("deflate", deflate.getHeaderField("Content-Encoding"));
+      list = new ObjectMapper().readValue(new InflaterInputStream(deflate.getInputStream()), ArrayList.class);
+      assertEquals(100, list.size());
+
+      HttpURLConnection identity = open("/compressed", null);
+      assertNull(identity.getHeaderField("Content-Encoding"));
+      list = new ObjectMapper().readValue(identity.getInputStream(), ArrayList.class);
+      assertEquals(100, list.size());
+
+      HttpURLConnection small = open("/declaredView", "gzip");
+      assertNull(small.getHeaderField("Content-Encoding"));
+      assertEquals("asdf", new ObjectMapper().readValue(small.getInputStream(), HashMap.class).get("str2"));
+    }
+  }
+
+  private static HttpURLConnection open(String path, String acceptEncoding) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+    if(acceptEncoding != null) {
+      connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+    }
+    return connection;
+  }
+
   @AfterClass
   public static void stop() {
     server.stop();
@@ -0,0 +1,4 @@
+package com.monitorjbl.json.model;
+
+public record TestDefaultViewRecord(long id, String name, String ignoredString) {
+}
@@ -14,6 +14,11 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class Context implements WebMvcConfigurer {
   @Bean
   public JsonViewSupportFactoryBean views() {
-    return new JsonViewSupportFactoryBean(JacksonConfiguration.configureJackson(JsonMapper.builder().build()), DefaultViewFactory.instance());
+    JsonViewSupportFactoryBean bean = new JsonViewSupportFactoryBean(JacksonConfiguration.configureJackson(JsonMapper.builder().build()), DefaultViewFactory.instance());
+    bean.setConditionalResponses(true);
+    bean.setVersionSupplier(VersionSupplierFactory.instance());
+    bean.setFieldSelectionParameter("fields");
+    bean.setCompression(true);
+    return bean;
   }
 }
@@ -2,11 +2,14 @@ package com.monitorjbl.json.server;
 
 import com.monitorjbl.json.DefaultView;
 import com.monitorjbl.json.model.TestDefaultViewObject;
+import com.monitorjbl.json.model.TestDefaultViewRecord;
 
 import static com.monitorjbl.json.Match.match;
 
 public class DefaultViewFactory {
-  private static final DefaultView defaultView = DefaultView.create().onClass(TestDefaultViewObject.class, match().exclude("ignoredString"));
+  private static final DefaultView defaultView = DefaultView.create()
+      .onClass(TestDefaultViewObject.class, match().exclude("ignoredString"))
+      .onClass(TestDefaultViewRecord.class, match().exclude("ignoredString"));
 
   public static DefaultView instance() {
     return defaultView;
@@ -0,0 +1,14 @@
+package com.monitorjbl.json.server;
+
+import com.monitorjbl.json.model.TestDefaultViewObject;
+
+import java.util.function.Function;
+
+public class VersionSupplierFactory {
+  private static final Function<Object, Object> versionSupplier = value ->
+      value instanceof TestDefaultViewObject ? ((TestDefaultViewObject) value).getId() : null;
+
+  public static Function<Object, Object> instance() {
+    return versionSupplier;
+  }
+}
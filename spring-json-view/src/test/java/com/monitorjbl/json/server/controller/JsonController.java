@@ -1,10 +1,14 @@
 package com.monitorjbl.json.server.controller;
 
 import com.google.common.collect.ImmutableMap;
+import com.monitorjbl.json.ClassMatch;
+import com.monitorjbl.json.FieldSelection;
 import com.monitorjbl.json.JsonResult;
 import com.monitorjbl.json.JsonView;
 import com.monitorjbl.json.Match;
+import com.monitorjbl.json.ResponseView;
 import com.monitorjbl.json.model.TestDefaultViewObject;
+import com.monitorjbl.json.model.TestDefaultViewRecord;
 import com.monitorjbl.json.model.TestDefaultViewSubobject;
 import com.monitorjbl.json.model.TestObject;
 import com.monitorjbl.json.model.TestSubobject;
@@ -77,6 +81,19 @@ public class JsonController {
         .returnValue();
   }
 
+  @RequestMapping(method = RequestMethod.GET, value = "/bean/narrowed")
+  @ResponseBody
+  public TestObject beanNarrowed() {
+    TestObject obj = new TestObject();
+    obj.setInt1(1);
+    obj.setStr2("asdf");
+    obj.setList(asList("red", "blue", "green"));
+    obj.setSub(new TestSubobject("qwerqwerqwerqw"));
+
+    return json.use(JsonView.with(obj).withFieldSelection(FieldSelection.parse("str2,sub")))
+        .returnValue();
+  }
+
   @RequestMapping(method = RequestMethod.GET, value = "/list")
   @ResponseBody
   public void list() {
@@ -204,4 +221,48 @@ public class JsonController {
     obj.setIgnoredString("oeisjfs");
     return singletonMap("myobj", obj);
   }
+
+  @RequestMapping(method = RequestMethod.GET, value = "/defaultViewRecords")
+  @ResponseBody
+  public List<TestDefaultViewRecord> defaultViewRecords() {
+    return asList(new TestDefaultViewRecord(4L, "someName", "oeisjfs"), new TestDefaultViewRecord(5L, "otherName", "oeisjfs"));
+  }
+
+  @RequestMapping(method = RequestMethod.GET, value = "/declaredView")
+  @ResponseBody
+  @ResponseView(@ClassMatch(value = TestObject.class, exclude = "int1", include = "ignoredDirect"))
+  public TestObject declaredView() {
+    TestObject obj = new TestObject();
+    obj.setInt1(1);
+    obj.setIgnoredDirect("ignored");
+    obj.setStr2("asdf");
+    obj.setSub(new TestSubobject("qwerqwerqwerqw"));
+    return obj;
+  }
+
+  @RequestMapping(method = RequestMethod.GET, value = "/declaredView/responseEntity")
+  @ResponseView({
+      @ClassMatch(value = TestObject.class, exclude = "*", include = "sub"),
+      @ClassMatch(value = TestSubobject.class, exclude = "val")
+  })
+  public ResponseEntity<TestObject> declaredViewResponseEntity() {
+    TestObject obj = new TestObject();
+    obj.setStr2("asdf");
+    obj.setSub(new TestSubobject("qwerqwerqwerqw"));
+    return ResponseEntity.accepted().body(obj);
+  }
+
+  @RequestMapping(method = RequestMethod.GET, value = "/compressed")
+  @ResponseBody
+  @ResponseView(@ClassMatch(value = TestObject.class, exclude = "*", include = {"str2", "sub"}))
+  public List<TestObject> compressed() {
+    List<TestObject> list = new ArrayList<>();
+    for(int i = 0; i < 100; i++) {
+      TestObject obj = new TestObject();
+      obj.setStr2("value " + i);
+      obj.setSub(new TestSubobject("sub " + i));
+      list.add(obj);
+    }
+    return list;
+  }
 }